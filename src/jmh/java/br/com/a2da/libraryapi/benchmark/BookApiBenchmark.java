@@ -0,0 +1,126 @@
+package br.com.a2da.libraryapi.benchmark;
+
+import br.com.a2da.libraryapi.LibraryApiApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Vazao HTTP da API de livros na stack servlet (BookController + JPA) contra a reativa
+ * (BookReactiveController + R2DBC). Cada trial sobe a aplicacao em uma porta aleatoria com
+ * o profile Spring correspondente e grava SEED_BOOKS livros.
+ *
+ * A variante reativa precisa do profile Maven reactive no classpath:
+ *   mvn -P benchmark,reactive -DskipTests verify -Dbenchmark.include=BookApiBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class BookApiBenchmark {
+
+    private static final int SEED_BOOKS = 1000;
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        SpringApplicationBuilder application = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN");
+
+        if ("reactive".equals(stack)) {
+            application.profiles("reactive");
+        }
+
+        context = application.run();
+
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/books";
+
+        ids = new long[SEED_BOOKS];
+
+        // as duas stacks tiram ids da book_seq de formas diferentes: guarda os retornados
+        for (int i = 0; i < SEED_BOOKS; i++) {
+
+            Matcher id = ID.matcher(request("POST", baseUrl, "{\"title\":\"Livro " + i + "\",\"author\":\"Autor " + (i % 50)
+                    + "\",\"isbn\":\"isbn-" + i + "\"}"));
+
+            if (!id.find()) {
+                throw new IllegalStateException("Could not seed book " + i);
+            }
+
+            ids[i] = Long.parseLong(id.group(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String show() throws IOException {
+        return request("GET", baseUrl + "/" + ids[ThreadLocalRandom.current().nextInt(SEED_BOOKS)], null);
+    }
+
+    @Benchmark
+    public String find() throws IOException {
+        return request("GET", baseUrl + "?author=autor%20" + ThreadLocalRandom.current().nextInt(50) + "&size=20", null);
+    }
+
+    private static String request(String method, String url, String json) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+
+        if (status >= 400) {
+            throw new IllegalStateException(method + " " + url + " returned " + status);
+        }
+
+        // ler o corpo inteiro devolve a conexao ao pool de keep-alive
+        try (InputStream inputStream = connection.getInputStream()) {
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
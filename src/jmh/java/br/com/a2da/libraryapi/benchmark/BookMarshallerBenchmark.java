@@ -0,0 +1,79 @@
+package br.com.a2da.libraryapi.benchmark;
+
+import br.com.a2da.libraryapi.api.controller.book.BookDTO;
+import br.com.a2da.libraryapi.api.controller.book.BookForm;
+import br.com.a2da.libraryapi.api.controller.book.BookMarshallerService;
+import br.com.a2da.libraryapi.api.controller.book.BookQueryForm;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Vazao de cada conversao do BookMarshallerService e do BookForm.bindToSaveModel().
+ * O profile benchmark roda com "-prof gc", entao o relatorio JSON tambem traz o
+ * gc.alloc.rate.norm (bytes alocados por operacao).
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookMarshallerBenchmark {
+
+    private BookMarshallerService bookMarshallerService;
+    private Book book;
+    private BookForm bookForm;
+    private BookQueryForm bookQueryForm;
+
+    @Setup
+    public void setUp() {
+
+        bookMarshallerService = new BookMarshallerService();
+
+        book = Book.builder()
+                .id(11L)
+                .author("Machado de Assis")
+                .title("Dom Casmurro")
+                .isbn("1111111111111111111")
+                .build();
+
+        bookForm = BookForm.builder()
+                .author("Jorge Amado")
+                .title("Capitães da Areia")
+                .isbn("222222222222222222")
+                .build();
+
+        bookQueryForm = BookQueryForm.builder()
+                .author("Machado")
+                .title("Casmurro")
+                .build();
+    }
+
+    @Benchmark
+    public BookDTO bindToBookDTO() {
+        return bookMarshallerService.bindToBookDTO(book);
+    }
+
+    @Benchmark
+    public Book bindToBookSave() {
+        return bookMarshallerService.bindToBookSave(bookForm);
+    }
+
+    @Benchmark
+    public Book bindToBookUpdate() {
+        return bookMarshallerService.bindToBookUpdate(bookForm, book);
+    }
+
+    @Benchmark
+    public BookQuery bindBookQueryFormToBookQuery() {
+        return bookMarshallerService.bindBookQueryFormToBookQuery(bookQueryForm);
+    }
+
+    @Benchmark
+    public Book bindToSaveModel() {
+        return bookForm.bindToSaveModel();
+    }
+}
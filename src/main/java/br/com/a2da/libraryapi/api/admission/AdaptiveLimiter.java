@@ -0,0 +1,211 @@
+package br.com.a2da.libraryapi.api.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Limite de requisicoes simultaneas que se ajusta pela latencia (gradiente, como no Gradient2
+ * do concurrency-limits da Netflix): compara a media curta com a media longa dos tempos de
+ * resposta. Se a curta sobe, o servidor esta enfileirando e o limite cai; se fica proxima da
+ * longa, o limite cresce aos poucos (folga de sqrt(limite)).
+ *
+ * Quem nao consegue permissao espera no maximo maxWaitNanos em uma fila de ate maxQueue
+ * posicoes; fora disso a requisicao e rejeitada na hora. Com minLimit == maxLimit o limite e fixo.
+ * */
+public class AdaptiveLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private volatile double limit;
+    private volatile int inflight;
+    private volatile int waiting;
+
+    private double shortRtt;
+    private double longRtt;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limites invalidos: min=" + minLimit + ", max=" + maxLimit);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /*
+     * Retorna null quando a requisicao deve ser descartada. A permissao devolvida precisa
+     * ser liberada uma vez, com ou sem amostra de latencia.
+     * */
+    public Permit tryAcquire(long maxWaitNanos) {
+
+        lock.lock();
+
+        try {
+            if (inflight < getLimit()) {
+                return admit();
+            }
+
+            if (maxWaitNanos <= 0 || waiting >= maxQueue) {
+                rejected.increment();
+                return null;
+            }
+
+            queued.increment();
+            waiting++;
+
+            try {
+                long remaining = maxWaitNanos;
+
+                while (inflight >= getLimit()) {
+
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        return null;
+                    }
+
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+
+                return admit();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                return null;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // rejeicao decidida fora do limiter (ex.: prioridade), contada junto com as demais
+    public void reject() {
+        rejected.increment();
+    }
+
+    public boolean isQueueing() {
+        return waiting > 0;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private Permit admit() {
+        inflight++;
+        admitted.increment();
+        return new Permit(inflight);
+    }
+
+    private void release(Permit permit, boolean sample) {
+
+        lock.lock();
+
+        try {
+            inflight--;
+
+            if (sample) {
+                update(System.nanoTime() - permit.startNanos, permit.inflight);
+            }
+
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rttNanos, int inflightAtStart) {
+
+        if (minLimit == maxLimit) {
+            return;
+        }
+
+        if (shortRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+
+        shortRtt += SHORT_ALPHA * (rttNanos - shortRtt);
+        longRtt += LONG_ALPHA * (rttNanos - longRtt);
+
+        // a media longa acompanha quedas de latencia mais rapido, senao o limite fica travado em baixo
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+
+        // sem carga o tempo de resposta nao diz nada sobre o limite
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inflight;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inflight) {
+            this.inflight = inflight;
+        }
+
+        /*
+         * sample = false para respostas que nao refletem a carga (erro, streaming longo).
+         * Chamadas repetidas sao ignoradas.
+         * */
+        public void release(boolean sample) {
+
+            if (released.compareAndSet(false, true)) {
+                AdaptiveLimiter.this.release(this, sample);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package br.com.a2da.libraryapi.api.admission;
+
+import br.com.a2da.libraryapi.api.exception.ApiErrors;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Controle de admissao dos endpoints /api/books, antes de a requisicao chegar ao controller:
+ *
+ * 1. token bucket por cliente, so com client-header configurado (o header que o proxy ou o
+ *    gateway preenche; sem ele na requisicao vale o IP): acima da taxa responde 429. Sem
+ *    client-header nao ha rate limit: atras de um balanceador todos teriam o IP dele;
+ * 2. limite de concorrencia adaptativo por BookEndpointGroup: sem vaga (e sem espaco na fila
+ *    curta) responde 503. Buscas e operacoes em massa nao entram enquanto ha lookups por id
+ *    esperando, para que find lento nao ocupe as threads que o show precisa.
+ *
+ * As duas respostas levam Retry-After e sao rapidas: a requisicao descartada nao toca no banco.
+ * */
+public class BookAdmissionFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<BookEndpointGroup, AdaptiveLimiter> limiters = new EnumMap<>(BookEndpointGroup.class);
+    private final Map<BookEndpointGroup, LongAdder> rateLimited = new EnumMap<>(BookEndpointGroup.class);
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private ObjectMapper objectMapper;
+    private double requestsPerSecond;
+    private int burst;
+    private String clientHeader;
+    private long retryAfterSeconds;
+
+    public BookAdmissionFilter(ObjectMapper objectMapper,
+                               double requestsPerSecond,
+                               int burst,
+                               String clientHeader,
+                               long retryAfterSeconds) {
+        this.objectMapper = objectMapper;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.clientHeader = clientHeader;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+
+        for (BookEndpointGroup group : BookEndpointGroup.values()) {
+            limiters.put(group, group.newLimiter());
+            rateLimited.put(group, new LongAdder());
+        }
+    }
+
+    public AdaptiveLimiter getLimiter(BookEndpointGroup group) {
+        return limiters.get(group);
+    }
+
+    public long getRateLimited(BookEndpointGroup group) {
+        return rateLimited.get(group).sum();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        BookEndpointGroup group = BookEndpointGroup.of(
+                request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()),
+                request.getQueryString()
+        );
+
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (isRateLimited()) {
+
+            long waitNanos = buckets.get(clientOf(request), client -> new TokenBucket(requestsPerSecond, burst)).tryConsume();
+
+            if (waitNanos > 0) {
+                rateLimited.get(group).increment();
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND,
+                        "Limite de requisicoes do cliente excedido");
+                return;
+            }
+        }
+
+        AdaptiveLimiter limiter = limiters.get(group);
+
+        if (group.compareTo(BookEndpointGroup.WRITE) > 0 && limiters.get(BookEndpointGroup.LOOKUP).isQueueing()) {
+            limiter.reject();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Servico sobrecarregado");
+            return;
+        }
+
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire(group.getMaxWaitNanos());
+
+        if (permit == null) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Servico sobrecarregado");
+            return;
+        }
+
+        boolean released = false;
+
+        try {
+            filterChain.doFilter(request, response);
+
+            // export responde de forma assincrona: a vaga so e devolvida quando o streaming termina
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(permit));
+            } else {
+                permit.release(group.isAdaptive() && response.getStatus() < 500);
+            }
+
+            released = true;
+        } finally {
+            if (!released) {
+                permit.release(false);
+            }
+        }
+    }
+
+    public boolean isRateLimited() {
+        return clientHeader != null && !clientHeader.isEmpty();
+    }
+
+    private String clientOf(HttpServletRequest request) {
+
+        String client = request.getHeader(clientHeader);
+
+        if (client != null && !client.trim().isEmpty()) {
+            return client.trim();
+        }
+
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfter, String message) throws IOException {
+
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        objectMapper.writeValue(response.getOutputStream(), new ApiErrors(message));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        for (BookEndpointGroup group : BookEndpointGroup.values()) {
+
+            AdaptiveLimiter limiter = limiters.get(group);
+            String tag = group.name().toLowerCase();
+
+            FunctionCounter.builder("book.admission.admitted", limiter, AdaptiveLimiter::getAdmitted)
+                    .description("Requisicoes admitidas pelo limitador de concorrencia")
+                    .tag("group", tag)
+                    .register(registry);
+
+            FunctionCounter.builder("book.admission.queued", limiter, AdaptiveLimiter::getQueued)
+                    .description("Requisicoes que esperaram uma vaga antes de serem admitidas ou recusadas")
+                    .tag("group", tag)
+                    .register(registry);
+
+            FunctionCounter.builder("book.admission.rejected", limiter, AdaptiveLimiter::getRejected)
+                    .description("Requisicoes descartadas com 503 por capacidade ou prioridade")
+                    .tag("group", tag)
+                    .register(registry);
+
+            FunctionCounter.builder("book.admission.rate.limited", rateLimited.get(group), LongAdder::sum)
+                    .description("Requisicoes recusadas com 429 pelo token bucket do cliente")
+                    .tag("group", tag)
+                    .register(registry);
+
+            Gauge.builder("book.admission.limit", limiter, AdaptiveLimiter::getLimit)
+                    .description("Limite de concorrencia atual")
+                    .tag("group", tag)
+                    .register(registry);
+
+            Gauge.builder("book.admission.inflight", limiter, AdaptiveLimiter::getInflight)
+                    .description("Requisicoes ocupando uma vaga agora")
+                    .tag("group", tag)
+                    .register(registry);
+        }
+    }
+
+    private static class ReleaseOnComplete implements AsyncListener {
+
+        private final AdaptiveLimiter.Permit permit;
+
+        ReleaseOnComplete(AdaptiveLimiter.Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release(false);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.a2da.libraryapi.api.admission;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Classes de endpoint do BookController, cada uma com o seu limite de concorrencia.
+ * A ordem e a prioridade: com LOOKUP enfileirando, SEARCH e BULK sao descartados antes de
+ * ocupar uma thread, e eles tambem tem filas menores e esperas mais curtas.
+ *
+ * BULK (import/export) tem limite fixo: sao requisicoes longas e a latencia delas nao serve
+ * de sinal para o limite adaptativo.
+ * */
+public enum BookEndpointGroup {
+
+    // GET /{id}, GET ?ids=, POST /lookup
+    LOOKUP(50, 10, 200, 100, 50),
+
+    // POST, PUT, PATCH, DELETE e POST /batch
+    WRITE(20, 5, 100, 50, 100),
+
+    // GET com filtros (find e cursor) e GET /facets/...
+    SEARCH(20, 4, 80, 10, 10),
+
+    // POST /import e GET /export
+    BULK(2, 2, 2, 0, 0);
+
+    private static final String BASE_PATH = "/api/books";
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    BookEndpointGroup(int initialLimit, int minLimit, int maxLimit, int maxQueue, long maxWaitMillis) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    public AdaptiveLimiter newLimiter() {
+        return new AdaptiveLimiter(initialLimit, minLimit, maxLimit, maxQueue);
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public boolean isAdaptive() {
+        return minLimit != maxLimit;
+    }
+
+    // null para caminhos fora de /api/books
+    public static BookEndpointGroup of(String method, String path, String query) {
+
+        if (path == null || !path.startsWith(BASE_PATH)) {
+            return null;
+        }
+
+        String rest = path.substring(BASE_PATH.length());
+
+        if (!rest.isEmpty() && !rest.startsWith("/")) {
+            return null;
+        }
+
+        rest = rest.replaceAll("^/+|/+$", "");
+
+        if (HttpMethod.GET.matches(method)) {
+
+            if (rest.equals("export")) {
+                return BULK;
+            }
+
+            if (rest.startsWith("facets/")) {
+                return SEARCH;
+            }
+
+            if (!rest.isEmpty()) {
+                return LOOKUP;
+            }
+
+            return hasParameter(query, "ids") ? LOOKUP : SEARCH;
+        }
+
+        if (HttpMethod.POST.matches(method)) {
+
+            if (rest.equals("lookup")) {
+                return LOOKUP;
+            }
+
+            if (rest.equals("import")) {
+                return BULK;
+            }
+        }
+
+        return WRITE;
+    }
+
+    private static boolean hasParameter(String query, String name) {
+
+        if (query == null) {
+            return false;
+        }
+
+        for (String parameter : query.split("&")) {
+            if (parameter.equals(name) || parameter.startsWith(name + "=")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
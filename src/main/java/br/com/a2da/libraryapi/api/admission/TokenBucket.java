@@ -0,0 +1,46 @@
+package br.com.a2da.libraryapi.api.admission;
+
+/*
+ * Token bucket de um cliente: ate burst requisicoes seguidas e depois ratePerSecond por segundo.
+ * Os tokens sao repostos de forma preguicosa, pelo tempo decorrido desde o ultimo consumo.
+ * */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Taxa invalida: rate=" + ratePerSecond + ", burst=" + burst);
+        }
+
+        this.capacity = burst;
+        this.tokensPerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /*
+     * Retorna 0 se consumiu um token, ou quantos nanos faltam para o proximo.
+     * */
+    public synchronized long tryConsume() {
+
+        long now = System.nanoTime();
+
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAuthorFacetDTO {
+
+    private String author;
+
+    private Long count;
+}
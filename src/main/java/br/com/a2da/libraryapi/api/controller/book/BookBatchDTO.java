@@ -0,0 +1,21 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchDTO {
+
+    private int created;
+
+    private int rejected;
+
+    private List<BookBatchItemDTO> items;
+}
@@ -0,0 +1,28 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchItemDTO {
+
+    public static final String CREATED = "CREATED";
+    public static final String DUPLICATED = "DUPLICATED";
+    public static final String INVALID = "INVALID";
+
+    // posicao do livro no corpo da request
+    private int index;
+
+    private String status;
+
+    private Long id;
+
+    private List<String> errors;
+}
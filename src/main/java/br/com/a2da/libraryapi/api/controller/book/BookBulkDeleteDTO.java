@@ -0,0 +1,18 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBulkDeleteDTO {
+
+    // ids distintos recebidos
+    private int requested;
+
+    private int deleted;
+}
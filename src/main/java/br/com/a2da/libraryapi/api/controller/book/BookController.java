@@ -2,81 +2,444 @@ package br.com.a2da.libraryapi.api.controller.book;
 
 import br.com.a2da.libraryapi.api.exception.ApiErrors;
 import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.exception.QueueFullException;
 import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookCountMode;
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
+import br.com.a2da.libraryapi.core.service.book.BookIngestQueue;
+import br.com.a2da.libraryapi.core.service.book.BookIngestStatus;
 import br.com.a2da.libraryapi.core.service.book.BookQuery;
 import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.core.service.book.CountedPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+// no profile "reactive" os endpoints sao atendidos pelo BookReactiveController (src/reactive/java)
+@Profile("!reactive")
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+    public static final int MAX_LOOKUP_IDS = 1000;
+    public static final int MAX_BATCH_BOOKS = 1000;
+    public static final int MAX_FACET_LIMIT = 1000;
+
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String INGEST_RETRY_AFTER_SECONDS = "1";
+
     private BookService bookService;
     private BookMarshallerService bookMarshallerService;
+    private Validator validator;
+    private ObjectMapper objectMapper;
+    private BookImportService bookImportService;
+    private BookJsonCache bookJsonCache;
+    private BookIngestQueue bookIngestQueue;
+    private boolean ingestEnabled;
 
-    public BookController(BookService bookService, BookMarshallerService bookMarshallerService) {
+    public BookController(BookService bookService,
+                          BookMarshallerService bookMarshallerService,
+                          Validator validator,
+                          ObjectMapper objectMapper,
+                          BookImportService bookImportService,
+                          BookJsonCache bookJsonCache,
+                          BookIngestQueue bookIngestQueue,
+                          @Value("${library.book.ingest.enabled:true}") boolean ingestEnabled) {
         this.bookService = bookService;
         this.bookMarshallerService = bookMarshallerService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.bookImportService = bookImportService;
+        this.bookJsonCache = bookJsonCache;
+        this.bookIngestQueue = bookIngestQueue;
+        this.ingestEnabled = ingestEnabled;
     }
 
+    /*
+     * Com "Prefer: respond-async" (RFC 7240) o livro vai para o BookIngestQueue: 202 com o id
+     * reservado e Location apontando para GET /api/books/ingest/{id}. Sem o header, ou com
+     * library.book.ingest.enabled=false, a criacao e sincrona (201).
+     * */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public BookDTO save(@RequestBody @Valid BookForm bookForm) {
+    public ResponseEntity<?> save(@RequestBody @Valid BookForm bookForm,
+                                  @RequestHeader(value = PREFER, required = false) String prefer) {
 
-        return bookMarshallerService.bindToBookDTO(
-                bookService.save(
-                        bookMarshallerService.bindToBookSave(bookForm)
-                )
-        );
+        Book bookInstance = bookMarshallerService.bindToBookSave(bookForm);
+
+        if (ingestEnabled && prefersAsync(prefer)) {
+
+            Long id = bookIngestQueue.enqueue(bookInstance);
+
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/books/ingest/" + id))
+                    .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                    .body(BookIngestDTO.builder().id(id).status(BookIngestStatus.Status.QUEUED.name()).build());
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(bookMarshallerService.bindToBookDTO(bookService.save(bookInstance)));
+    }
+
+    // situacao de um livro criado com "Prefer: respond-async"
+    @GetMapping("ingest/{id}")
+    public BookIngestDTO ingestStatus(@PathVariable Long id) {
+
+        BookIngestStatus ingestStatus = bookIngestQueue.status(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        return BookIngestDTO.builder()
+                .id(id)
+                .status(ingestStatus.getStatus().name())
+                .error(ingestStatus.getError())
+                .build();
+    }
+
+    /*
+     * Cria varios livros de uma vez. Cada item e validado com as mesmas regras do BookForm;
+     * os invalidos e os de ISBN repetido sao reportados sem impedir a criacao dos demais.
+     * No maximo MAX_BATCH_BOOKS livros por request; listas maiores respondem 400.
+     * */
+    @PostMapping("batch")
+    public BookBatchDTO saveBatch(@RequestBody List<BookForm> bookForms) {
+
+        if (bookForms.size() > MAX_BATCH_BOOKS) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Informe no maximo " + MAX_BATCH_BOOKS + " livros"
+            );
+        }
+
+        List<BookBatchItemDTO> items = new ArrayList<>(bookForms.size());
+        List<Integer> validIndexes = new ArrayList<>(bookForms.size());
+        List<Book> validBooks = new ArrayList<>(bookForms.size());
+
+        for (int i = 0; i < bookForms.size(); i++) {
+
+            BookForm bookForm = bookForms.get(i);
+            Set<ConstraintViolation<BookForm>> violations = validator.validate(bookForm);
+
+            if (violations.isEmpty()) {
+                validIndexes.add(i);
+                validBooks.add(bookMarshallerService.bindToBookSave(bookForm));
+                items.add(null);
+            } else {
+                items.add(BookBatchItemDTO.builder()
+                        .index(i)
+                        .status(BookBatchItemDTO.INVALID)
+                        .errors(violations.stream()
+                                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                                .collect(Collectors.toList()))
+                        .build());
+            }
+        }
+
+        List<BookBatchResult> results = validBooks.isEmpty()
+                ? new ArrayList<>()
+                : bookService.saveAll(validBooks);
+
+        int created = 0;
+
+        for (int i = 0; i < results.size(); i++) {
+
+            BookBatchResult result = results.get(i);
+            int index = validIndexes.get(i);
+
+            if (result.getStatus() == BookBatchResult.Status.CREATED) {
+                created++;
+                items.set(index, BookBatchItemDTO.builder()
+                        .index(index)
+                        .status(BookBatchItemDTO.CREATED)
+                        .id(result.getBook().getId())
+                        .build());
+            } else {
+                items.set(index, BookBatchItemDTO.builder()
+                        .index(index)
+                        .status(BookBatchItemDTO.DUPLICATED)
+                        .errors(Arrays.asList("Isbn ja cadastrado"))
+                        .build());
+            }
+        }
+
+        return BookBatchDTO.builder()
+                .created(created)
+                .rejected(bookForms.size() - created)
+                .items(items)
+                .build();
+    }
+
+    /*
+     * Importa um arquivo CSV (com cabecalho title,author,isbn) ou NDJSON enviado no corpo:
+     * POST /api/books/import com Content-Type text/csv ou application/x-ndjson
+     * 400 so para cabecalho invalido, antes de gravar; erro no meio do arquivo = 200 com
+     * completed=false (ver BookImportDTO).
+     * */
+    @PostMapping(value = "import", consumes = {"text/csv", "application/x-ndjson"})
+    public BookImportDTO importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                     InputStream body) throws IOException {
+
+        BookImportFormat importFormat = BookImportFormat.of(contentType);
+
+        try {
+            return bookImportService.importBooks(importFormat, body);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
     }
 
     @GetMapping("{id}")
-    public BookDTO show(@PathVariable Long id) {
+    public ResponseEntity<BookJson> show(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        return bookService.findById(id)
-                .map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND))
-                ;
+        // 304 decidido so pela versao, sem carregar o livro nem serializar JSON
+        if (ifNoneMatch != null) {
+
+            Long version = bookService.findVersionById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+            String etag = BookETag.of(id, version);
+
+            if (BookETag.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        BookJson bookJson = bookService.findById(id)
+                .map(bookInstance -> bookJsonCache.get(bookInstance, bookMarshallerService::bindToBookDTO))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        return ResponseEntity.ok()
+                .eTag(BookETag.of(bookJson.getId(), bookJson.getVersion()))
+                .body(bookJson);
     }
 
+    /*
+     * count=exact|estimated|capped escolhe como o total e calculado quando a busca vai ao banco
+     * (padrao: library.book.count.mode); "totalType" na resposta diz qual foi usado.
+     * */
     @GetMapping
-    public Page<BookDTO> find(BookQueryForm bookQueryForm, Pageable pageRequest) {
+    public ResponseEntity<Page<BookJson>> find(BookQueryForm bookQueryForm,
+                                               Pageable pageRequest,
+                                               @RequestParam(value = "count", required = false) String count,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        BookQuery bookQuery = toBookQuery(bookQueryForm);
+
+        Page<Book> result;
+
+        if (count == null) {
+            result = bookService.find(bookQuery, pageRequest);
+        } else {
+
+            BookCountMode countMode;
+
+            try {
+                countMode = BookCountMode.of(count);
+            } catch (IllegalArgumentException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+            }
+
+            result = bookService.find(bookQuery, pageRequest, countMode);
+        }
+
+        String etag = BookETag.of(result);
+
+        if (BookETag.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        // a pagina e montada com os fragmentos JSON ja serializados de cada livro
+        List<BookJson> list = result.getContent()
+                .stream()
+                .map(bookInstance -> bookJsonCache.get(bookInstance, bookMarshallerService::bindToBookDTO))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(new CountedPage<BookJson>(list, pageRequest, result.getTotalElements(), CountedPage.totalTypeOf(result)));
+    }
+
+    /*
+     * Autores com mais livros: GET /api/books/facets/authors?limit=10&prefix=mach
+     * Com title/author/match os totais ficam restritos aos livros dessa busca.
+     * */
+    @GetMapping("facets/authors")
+    public List<BookAuthorFacetDTO> authorFacets(BookQueryForm bookQueryForm,
+                                                 @RequestParam(value = "prefix", required = false) String prefix,
+                                                 @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        if (limit < 1 || limit > MAX_FACET_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe limit de 1 a " + MAX_FACET_LIMIT);
+        }
+
+        return bookService.findAuthorFacets(toBookQuery(bookQueryForm), prefix, limit)
+                .stream()
+                .map(bookAuthorFacet -> bookMarshallerService.bindToBookAuthorFacetDTO(bookAuthorFacet))
+                .collect(Collectors.toList());
+    }
 
-        BookQuery bookQuery = bookMarshallerService.bindBookQueryFormToBookQuery(bookQueryForm);
+    /*
+     * Paginacao por keyset: GET /api/books?cursor=&size=20&sort=title,asc
+     * cursor vazio = primeira pagina; as seguintes usam o "next" da resposta anterior.
+     * */
+    @GetMapping(params = "cursor")
+    public BookCursorPageDTO findByCursor(BookQueryForm bookQueryForm,
+                                          @RequestParam String cursor,
+                                          Pageable pageRequest) {
 
-        Page<Book> result = bookService.find(
+        BookCursor bookCursor;
+
+        try {
+            bookCursor = cursor.isEmpty()
+                    ? BookCursor.first(pageRequest.getSort())
+                    : BookCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        BookQuery bookQuery = toBookQuery(bookQueryForm);
+
+        Slice<Book> result = bookService.findSlice(
                 bookQuery,
-                pageRequest
+                bookCursor,
+                pageRequest.getPageSize()
         );
 
-        List<BookDTO> list = result.getContent()
+        List<Book> books = result.getContent();
+
+        List<BookDTO> list = books
                 .stream()
                 .map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance))
                 .collect(Collectors.toList());
 
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        return BookCursorPageDTO.builder()
+                .content(list)
+                .size(list.size())
+                .hasNext(result.hasNext())
+                .next(result.hasNext() ? bookCursor.after(books.get(books.size() - 1)).encode() : null)
+                .build();
+    }
+
+    /*
+     * Exporta o catalogo inteiro: GET /api/books/export?format=ndjson|csv
+     * Os livros vem de um cursor do banco e sao escritos um a um na resposta, entao o
+     * uso de memoria nao depende do tamanho do catalogo.
+     * */
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+
+        BookExportFormat exportFormat;
+
+        try {
+            exportFormat = BookExportFormat.of(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        StreamingResponseBody body = outputStream -> {
+
+            try (BookExportFormat.BookExportWriter writer = exportFormat.open(outputStream, objectMapper)) {
+
+                bookService.export(bookInstance -> {
+                    try {
+                        writer.write(bookMarshallerService.bindToBookDTO(bookInstance));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportFormat.getFileName() + "\"")
+                .body(body);
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void delete(@PathVariable Long id) {
 
-        Book book = bookService.findById(id).orElseThrow(()
-                -> new ResponseStatusException(HttpStatus.NOT_FOUND)
-        );
+        if (!bookService.deleteById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
 
-        bookService.delete(book);
+    /*
+     * Remocao em massa: DELETE /api/books?ids=1,2,3
+     * Um DELETE por bloco de ids; ids inexistentes sao ignorados e ficam fora de "deleted".
+     * */
+    @DeleteMapping(params = "ids")
+    public BookBulkDeleteDTO deleteAll(@RequestParam List<Long> ids) {
+
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+
+        return BookBulkDeleteDTO.builder()
+                .requested(distinctIds.size())
+                .deleted(bookService.deleteAllById(distinctIds))
+                .build();
+    }
+
+    /*
+     * Varios livros por id em uma request: GET /api/books?ids=1,2,3
+     * ou POST /api/books/lookup {"ids": [...]} para listas longas.
+     * Um item por id, na ordem pedida, com status FOUND ou MISSING.
+     * */
+    @GetMapping(params = "ids")
+    public BookLookupDTO findAllById(@RequestParam List<Long> ids) {
+
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_IDS || ids.contains(null)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Informe de 1 a " + MAX_LOOKUP_IDS + " ids validos"
+            );
+        }
+
+        return toBookLookupDTO(ids);
+    }
+
+    /*
+     * ids e cursor juntos casariam com findAllById e findByCursor (mapeamento ambiguo, 500).
+     * Com dois params esta action e a mais especifica e responde 400.
+     * */
+    @GetMapping(params = {"ids", "cursor"})
+    public void findByIdsAndCursor() {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ids ou cursor, nao os dois");
+    }
+
+    @PostMapping("lookup")
+    public BookLookupDTO lookup(@RequestBody @Valid BookLookupForm bookLookupForm) {
+        return toBookLookupDTO(bookLookupForm.getIds());
     }
 
     @PutMapping("{id}")
@@ -94,6 +457,39 @@ public class BookController {
         }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    /*
+     * Altera so os campos enviados com um unico UPDATE condicionado a versao:
+     * If-Match com o ETag do GET (ou "version" no corpo); sem versao responde 428.
+     * 404/409 saem do numero de linhas alteradas, sem ler o livro antes.
+     * */
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patch(@PathVariable Long id,
+                                      @RequestBody @Valid BookPatchForm bookPatchForm,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        Long version = bookPatchForm.getVersion();
+
+        if (ifMatch != null) {
+
+            version = BookETag.versionOf(ifMatch, id);
+
+            if (version == null) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+            }
+        }
+
+        if (version == null) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED);
+        }
+
+        Long newVersion = bookService.patch(bookMarshallerService.bindToBookPatch(id, version, bookPatchForm))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        return ResponseEntity.noContent()
+                .eTag(BookETag.of(id, newVersion))
+                .build();
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleValidationException(MethodArgumentNotValidException ex) {
@@ -108,4 +504,70 @@ public class BookController {
     public ApiErrors handleBusinessException(BusinessException ex) {
         return new ApiErrors(ex);
     }
+
+    @ExceptionHandler(QueueFullException.class)
+    public ResponseEntity<ApiErrors> handleQueueFull(QueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, INGEST_RETRY_AFTER_SECONDS)
+                .body(new ApiErrors(ex.getMessage()));
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiErrors handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return new ApiErrors(new BusinessException("Livro alterado por outra requisicao"));
+    }
+
+    private static boolean prefersAsync(String prefer) {
+
+        if (prefer == null) {
+            return false;
+        }
+
+        for (String preference : prefer.split(",")) {
+            if (RESPOND_ASYNC.equalsIgnoreCase(preference.trim())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private BookLookupDTO toBookLookupDTO(List<Long> ids) {
+
+        Map<Long, Book> booksById = bookService.findAllById(ids);
+        List<BookLookupItemDTO> items = new ArrayList<>(ids.size());
+        int found = 0;
+
+        for (Long id : ids) {
+
+            Book book = booksById.get(id);
+
+            if (book != null) {
+                found++;
+            }
+
+            items.add(BookLookupItemDTO.builder()
+                    .id(id)
+                    .status(book != null ? BookLookupItemDTO.FOUND : BookLookupItemDTO.MISSING)
+                    .book(book != null ? bookMarshallerService.bindToBookDTO(book) : null)
+                    .build());
+        }
+
+        return BookLookupDTO.builder()
+                .found(found)
+                .missing(ids.size() - found)
+                .items(items)
+                .build();
+    }
+
+    // match invalido (exact|prefix|contains) = 400
+    private BookQuery toBookQuery(BookQueryForm bookQueryForm) {
+
+        try {
+            return bookMarshallerService.bindBookQueryFormToBookQuery(bookQueryForm);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookCursorPageDTO {
+
+    private List<BookDTO> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    // cursor opaco para a proxima pagina, null na ultima
+    private String next;
+}
@@ -0,0 +1,82 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import org.springframework.data.domain.Page;
+
+/*
+ * ETags fortes calculados a partir de (id, version), sem serializar a resposta.
+ * */
+public final class BookETag {
+
+    private BookETag() {
+    }
+
+    public static String of(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    public static String of(Page<Book> page) {
+
+        long hash = 0xcbf29ce484222325L;
+
+        hash = mix(hash, page.getNumber());
+        hash = mix(hash, page.getSize());
+        hash = mix(hash, page.getTotalElements());
+        hash = mix(hash, page.getSort().toString().hashCode());
+
+        for (Book book : page.getContent()) {
+            hash = mix(hash, book.getId() == null ? 0 : book.getId());
+            hash = mix(hash, book.getVersion() == null ? -1 : book.getVersion());
+        }
+
+        return "\"p-" + Long.toHexString(hash) + "\"";
+    }
+
+    /*
+     * If-None-Match aceita lista de ETags, "*" e ETags fracas (comparacao fraca, RFC 7232).
+     * */
+    public static boolean matches(String ifNoneMatch, String etag) {
+
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+
+            String value = candidate.trim();
+
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Versao contida no If-Match quando ele e o ETag forte deste livro; null caso contrario.
+     * */
+    public static Long versionOf(String ifMatch, Long id) {
+
+        String value = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+
+        if (!value.startsWith(prefix) || !value.endsWith("\"") || value.length() <= prefix.length() + 1) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value.substring(prefix.length(), value.length() - 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,131 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Formatos do GET /api/books/export. Cada writer escreve um livro por vez direto no
+ * OutputStream da resposta (com buffer), sem montar a lista inteira em memoria.
+ * close() so descarrega o buffer; quem fecha o OutputStream e o container.
+ * */
+public enum BookExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        public BookExportWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+
+            ObjectWriter objectWriter = objectMapper.writerFor(BookDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(SerializationFeature.INDENT_OUTPUT);
+
+            // o '\n' vai junto de cada registro: exportacao vazia = corpo vazio
+            JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(new BufferedOutputStream(outputStream, BUFFER_SIZE))
+                    .setRootValueSeparator(null)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            return new BookExportWriter() {
+
+                @Override
+                public void write(BookDTO bookDTO) throws IOException {
+                    objectWriter.writeValue(generator, bookDTO);
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    generator.close();
+                }
+            };
+        }
+    },
+
+    CSV("text/csv", "csv") {
+        @Override
+        public BookExportWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+            writer.write("id,title,author,isbn,version\n");
+
+            return new BookExportWriter() {
+
+                @Override
+                public void write(BookDTO bookDTO) throws IOException {
+                    writer.write(toCsv(bookDTO.getId()));
+                    writer.write(',');
+                    writer.write(toCsv(bookDTO.getTitle()));
+                    writer.write(',');
+                    writer.write(toCsv(bookDTO.getAuthor()));
+                    writer.write(',');
+                    writer.write(toCsv(bookDTO.getIsbn()));
+                    writer.write(',');
+                    writer.write(toCsv(bookDTO.getVersion()));
+                    writer.write('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String contentType;
+    private final String extension;
+
+    BookExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileName() {
+        return "books." + extension;
+    }
+
+    public abstract BookExportWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException;
+
+    public static BookExportFormat of(String format) {
+
+        for (BookExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Formato de exportacao invalido: " + format);
+    }
+
+    // RFC 4180: aspas quando houver separador, aspas ou quebra de linha
+    private static String toCsv(Object value) {
+
+        if (value == null) {
+            return "";
+        }
+
+        String text = value.toString();
+
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    public interface BookExportWriter extends Closeable {
+
+        void write(BookDTO bookDTO) throws IOException;
+    }
+}
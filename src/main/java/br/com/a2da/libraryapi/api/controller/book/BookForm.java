@@ -5,7 +5,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.modelmapper.ModelMapper;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
@@ -33,9 +32,6 @@ public class BookForm {
     private String isbn;
 
     public Book bindToSaveModel() {
-
-        ModelMapper modelMapper = new ModelMapper();
-
-        return modelMapper.map(this, Book.class);
+        return BookMapper.INSTANCE.toBook(this);
     }
 }
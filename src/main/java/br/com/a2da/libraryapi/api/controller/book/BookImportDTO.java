@@ -0,0 +1,38 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportDTO {
+
+    private long rows;
+
+    private long inserted;
+
+    // ISBN repetido no arquivo ou ja cadastrado
+    private long skipped;
+
+    // registro mal formado ou reprovado na validacao do BookForm
+    private long failed;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    // false: a importacao parou no meio; os inserted ja estao gravados, o resto do arquivo nao
+    private boolean completed;
+
+    // motivo da parada quando completed = false
+    private String interruption;
+
+    // apenas os primeiros BookImportService.MAX_REPORTED_ERRORS
+    private List<String> errors;
+}
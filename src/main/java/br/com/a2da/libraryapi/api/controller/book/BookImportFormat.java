@@ -0,0 +1,276 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.MediaType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Formatos aceitos pelo POST /api/books/import. Os readers leem um registro por vez
+ * do corpo da requisicao, entao o arquivo nunca fica inteiro em memoria.
+ * */
+public enum BookImportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        public BookImportReader open(InputStream inputStream, ObjectMapper objectMapper) {
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            ObjectReader objectReader = objectMapper.readerFor(BookForm.class);
+
+            return new BookImportReader() {
+
+                private long line;
+
+                @Override
+                public BookForm read() throws IOException {
+
+                    String text;
+
+                    do {
+                        text = reader.readLine();
+                        line++;
+
+                        if (text == null) {
+                            return null;
+                        }
+                    } while (text.trim().isEmpty());
+
+                    BookForm bookForm;
+
+                    try {
+                        bookForm = objectReader.readValue(text);
+                    } catch (JsonProcessingException ex) {
+                        throw new IllegalArgumentException("JSON invalido");
+                    }
+
+                    if (bookForm == null) {
+                        throw new IllegalArgumentException("JSON invalido");
+                    }
+
+                    return bookForm;
+                }
+
+                @Override
+                public long getLine() {
+                    return line;
+                }
+            };
+        }
+    },
+
+    CSV("text/csv") {
+        @Override
+        public BookImportReader open(InputStream inputStream, ObjectMapper objectMapper) throws IOException {
+
+            CsvRecordReader reader = new CsvRecordReader(
+                    new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE)
+            );
+
+            List<String> header = reader.next();
+
+            int title = header == null ? -1 : indexOf(header, "title");
+            int author = header == null ? -1 : indexOf(header, "author");
+            int isbn = header == null ? -1 : indexOf(header, "isbn");
+
+            if (header != null && (title < 0 || author < 0 || isbn < 0)) {
+                throw new IllegalArgumentException("O cabecalho do CSV deve conter as colunas title, author e isbn");
+            }
+
+            return new BookImportReader() {
+
+                @Override
+                public BookForm read() throws IOException {
+
+                    if (header == null) {
+                        return null;
+                    }
+
+                    List<String> fields = reader.next();
+
+                    if (fields == null) {
+                        return null;
+                    }
+
+                    return BookForm.builder()
+                            .title(field(fields, title))
+                            .author(field(fields, author))
+                            .isbn(field(fields, isbn))
+                            .build();
+                }
+
+                @Override
+                public long getLine() {
+                    return reader.getLine();
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MediaType mediaType;
+
+    BookImportFormat(String contentType) {
+        this.mediaType = MediaType.parseMediaType(contentType);
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /*
+     * O reader retorna null no fim do arquivo. Um registro mal formado gera
+     * IllegalArgumentException depois de consumido, e a leitura pode continuar.
+     * */
+    public abstract BookImportReader open(InputStream inputStream, ObjectMapper objectMapper) throws IOException;
+
+    public static BookImportFormat of(MediaType contentType) {
+
+        for (BookImportFormat value : values()) {
+            if (value.mediaType.isCompatibleWith(contentType)) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Formato de importacao invalido: " + contentType);
+    }
+
+    private static int indexOf(List<String> header, String column) {
+
+        for (int i = 0; i < header.size(); i++) {
+            if (column.equalsIgnoreCase(header.get(i).trim())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    public interface BookImportReader {
+
+        BookForm read() throws IOException;
+
+        // linha do arquivo onde comeca o ultimo registro lido
+        long getLine();
+    }
+
+    /*
+     * Leitor RFC 4180: campos entre aspas podem conter separador, aspas duplicadas e quebras de linha.
+     * Linhas em branco sao ignoradas.
+     * */
+    static class CsvRecordReader {
+
+        private static final int NONE = -2;
+
+        private final Reader reader;
+        private int pending = NONE;
+        private long nextLine = 1;
+        private long line;
+
+        CsvRecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        long getLine() {
+            return line;
+        }
+
+        List<String> next() throws IOException {
+
+            List<String> fields;
+
+            do {
+                fields = nextRecord();
+            } while (fields != null && fields.size() == 1 && fields.get(0).isEmpty());
+
+            return fields;
+        }
+
+        private List<String> nextRecord() throws IOException {
+
+            int c = read();
+
+            if (c == -1) {
+                return null;
+            }
+
+            line = nextLine;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+
+            while (true) {
+
+                if (quoted) {
+
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Aspas nao fechadas");
+                    }
+
+                    if (c == '"') {
+                        int next = read();
+
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        nextLine++;
+                    }
+
+                    field.append((char) c);
+
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+
+                    if (c == '\r') {
+                        int next = read();
+
+                        if (next != '\n') {
+                            pending = next;
+                        }
+                    }
+
+                    if (c != -1) {
+                        nextLine++;
+                    }
+
+                    fields.add(field.toString());
+
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+
+            if (pending != NONE) {
+                int c = pending;
+                pending = NONE;
+                return c;
+            }
+
+            return reader.read();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Importacao de arquivos grandes: os registros sao lidos um a um do corpo da requisicao,
+ * validados com as regras do BookForm e gravados em blocos pelo BookService.saveAll
+ * (uma transacao por bloco). ISBNs repetidos no mesmo bloco sao descartados pelo saveAll;
+ * os de blocos anteriores ja estao no banco e sao descartados pela consulta de ISBNs.
+ *
+ * Um erro no meio do arquivo (leitura ou gravacao) nao desfaz os blocos ja gravados: a
+ * importacao para e o resultado diz quantos foram inseridos, com completed=false e o erro.
+ * */
+@Slf4j
+@Service
+public class BookImportService {
+
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private BookService bookService;
+    private BookMarshallerService bookMarshallerService;
+    private Validator validator;
+    private ObjectMapper objectMapper;
+    private int chunkSize;
+
+    public BookImportService(BookService bookService,
+                             BookMarshallerService bookMarshallerService,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             @Value("${library.book.import.chunk-size:1000}") int chunkSize) {
+        this.bookService = bookService;
+        this.bookMarshallerService = bookMarshallerService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public BookImportDTO importBooks(BookImportFormat format, InputStream inputStream) throws IOException {
+
+        long start = System.nanoTime();
+
+        BookImportFormat.BookImportReader reader = format.open(inputStream, objectMapper);
+        ImportRun run = new ImportRun();
+
+        try {
+            readAndSave(reader, run);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Book import interrupted at line {} after {} inserted books", reader.getLine(), run.inserted, ex);
+            run.interruption = "Importacao interrompida na linha " + reader.getLine() + ": " + ex.getMessage();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : run.rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+
+        log.info("Book import finished: {} rows, {} inserted, {} skipped, {} failed, {} rows/s",
+                run.rows, run.inserted, run.skipped, run.failed, Math.round(rowsPerSecond));
+
+        return BookImportDTO.builder()
+                .rows(run.rows)
+                .inserted(run.inserted)
+                .skipped(run.skipped)
+                .failed(run.failed)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(rowsPerSecond)
+                .completed(run.interruption == null)
+                .interruption(run.interruption)
+                .errors(run.errors)
+                .build();
+    }
+
+    private void readAndSave(BookImportFormat.BookImportReader reader, ImportRun run) throws IOException {
+
+        List<Book> chunk = new ArrayList<>(chunkSize);
+
+        while (true) {
+
+            BookForm bookForm;
+
+            try {
+                bookForm = reader.read();
+            } catch (IllegalArgumentException ex) {
+                run.rows++;
+                run.fail(reader.getLine(), ex.getMessage());
+                continue;
+            }
+
+            if (bookForm == null) {
+                break;
+            }
+
+            run.rows++;
+
+            Set<ConstraintViolation<BookForm>> violations = validator.validate(bookForm);
+
+            if (!violations.isEmpty()) {
+                ConstraintViolation<BookForm> violation = violations.iterator().next();
+                run.fail(reader.getLine(), violation.getPropertyPath() + " " + violation.getMessage());
+                continue;
+            }
+
+            // o id do arquivo e ignorado: todo registro importado e um livro novo
+            bookForm.setId(null);
+            chunk.add(bookMarshallerService.bindToBookSave(bookForm));
+
+            if (chunk.size() == chunkSize) {
+                saveChunk(chunk, run);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        saveChunk(chunk, run);
+    }
+
+    private void saveChunk(List<Book> chunk, ImportRun run) {
+
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<BookBatchResult> results;
+
+        try {
+            results = bookService.saveAll(chunk);
+        } catch (BusinessException ex) {
+            results = saveOneByOne(chunk);
+        }
+
+        for (BookBatchResult result : results) {
+            if (result.getStatus() == BookBatchResult.Status.CREATED) {
+                run.inserted++;
+            } else {
+                run.skipped++;
+            }
+        }
+    }
+
+    /*
+     * Outra requisicao gravou um dos ISBNs entre a consulta e o insert do bloco, que foi
+     * desfeito inteiro. Os ids e versions atribuidos na tentativa sao descartados antes de
+     * gravar de novo, senao o save viraria um merge de um livro inexistente.
+     * */
+    private List<BookBatchResult> saveOneByOne(List<Book> chunk) {
+
+        List<BookBatchResult> results = new ArrayList<>(chunk.size());
+
+        for (Book book : chunk) {
+
+            book.setId(null);
+            book.setVersion(null);
+
+            try {
+                results.add(BookBatchResult.created(bookService.save(book)));
+            } catch (BusinessException ex) {
+                results.add(BookBatchResult.duplicated(book));
+            }
+        }
+
+        return results;
+    }
+
+    private static class ImportRun {
+
+        private long rows;
+        private long inserted;
+        private long skipped;
+        private long failed;
+        private String interruption;
+        private final List<String> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+
+            failed++;
+
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Linha " + line + ": " + message);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookIngestDTO {
+
+    private Long id;
+
+    // QUEUED, PERSISTED ou FAILED
+    private String status;
+
+    // so em FAILED
+    private String error;
+}
@@ -0,0 +1,55 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/*
+ * JSON de um BookDTO ja serializado. O SerializedString guarda os bytes UTF-8, entao
+ * escrever na resposta (sozinho ou dentro do "content" de uma pagina) e uma copia de bytes.
+ * */
+public final class BookJson extends JsonSerializable.Base {
+
+    private final Long id;
+    private final Long version;
+    private final SerializedString json;
+
+    BookJson(Long id, Long version, String json) {
+        this.id = id;
+        this.version = version;
+        this.json = new SerializedString(json);
+        // codifica agora, uma vez, em vez de na primeira resposta
+        this.json.asUnquotedUTF8();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return json.asUnquotedUTF8().length;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeRawValue(json);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        serialize(generator, provider);
+    }
+
+    @Override
+    public String toString() {
+        return json.getValue();
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+/*
+ * JSON (UTF-8) de cada BookDTO por id, valido enquanto a versao for a mesma.
+ * show e find escrevem os fragmentos em cache em vez de converter e serializar o DTO a cada
+ * request: a chave sai do proprio Book (id e version), o BookDTO so e montado no miss;
+ * update, patch e delete descartam o fragmento pelo BookChangeListener.
+ * Metricas: cache.* com cache=bookJson.
+ * */
+@Profile("!reactive")
+@Component
+public class BookJsonCache implements BookChangeListener, MeterBinder {
+
+    private final ObjectWriter objectWriter;
+    private final Cache<Long, BookJson> fragments;
+
+    public BookJsonCache(ObjectMapper objectMapper,
+                         @Value("${library.book.json-cache.maximum-weight-bytes:67108864}") long maximumWeightBytes) {
+        this.objectWriter = objectMapper.writerFor(BookDTO.class);
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .<Long, BookJson>weigher((id, bookJson) -> bookJson.size())
+                .recordStats()
+                .build();
+    }
+
+    public BookJson get(Book book, Function<Book, BookDTO> toBookDTO) {
+
+        Long id = book.getId();
+        Long version = book.getVersion();
+
+        if (id == null || version == null) {
+            return serialize(toBookDTO.apply(book));
+        }
+
+        BookJson cached = fragments.getIfPresent(id);
+
+        if (cached != null && version.equals(cached.getVersion())) {
+            return cached;
+        }
+
+        BookJson bookJson = serialize(toBookDTO.apply(book));
+
+        // nao substitui uma versao mais nova gravada por outra request
+        fragments.asMap().merge(id, bookJson, (current, candidate) ->
+                current.getVersion() > candidate.getVersion() ? current : candidate);
+
+        return bookJson;
+    }
+
+    public void invalidateAll() {
+        fragments.invalidateAll();
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        fragments.invalidate(book.getId());
+    }
+
+    @Override
+    public void bookUpdated(Book book) {
+        fragments.invalidate(book.getId());
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+        fragments.invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, fragments, "bookJson");
+    }
+
+    private BookJson serialize(BookDTO bookDTO) {
+
+        try {
+            return new BookJson(bookDTO.getId(), bookDTO.getVersion(), objectWriter.writeValueAsString(bookDTO));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupDTO {
+
+    private int found;
+
+    private int missing;
+
+    // um item por id, na ordem da request
+    private List<BookLookupItemDTO> items;
+}
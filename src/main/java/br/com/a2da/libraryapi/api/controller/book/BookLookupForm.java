@@ -0,0 +1,25 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/*
+ * Corpo do POST /api/books/lookup, para listas de ids longas demais para a query string.
+ * */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupForm {
+
+    @NotEmpty
+    @Size(max = BookController.MAX_LOOKUP_IDS)
+    private List<@NotNull Long> ids;
+}
@@ -0,0 +1,23 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupItemDTO {
+
+    public static final String FOUND = "FOUND";
+    public static final String MISSING = "MISSING";
+
+    private Long id;
+
+    private String status;
+
+    // null quando MISSING
+    private BookDTO book;
+}
@@ -0,0 +1,46 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/*
+ * Implementacao gerada em tempo de compilacao (BookMapperImpl): chamadas diretas a getters/setters,
+ * sem reflection e alocando apenas o objeto de destino.
+ * */
+@Mapper(
+        builder = @Builder(disableBuilder = true),
+        unmappedTargetPolicy = ReportingPolicy.IGNORE
+)
+public interface BookMapper {
+
+    BookMapper INSTANCE = Mappers.getMapper(BookMapper.class);
+
+    BookDTO toBookDTO(Book book);
+
+    Book toBook(BookForm bookForm);
+
+    Book copy(Book book);
+
+    @Mapping(target = "id", ignore = true)
+    void updateBook(BookForm bookForm, @MappingTarget Book book);
+
+    @Mapping(target = "id", source = "id")
+    @Mapping(target = "version", source = "version")
+    Book toBook(BookPatchForm bookPatchForm, Long id, Long version);
+
+    BookQuery toBookQuery(BookQueryForm bookQueryForm);
+
+    BookAuthorFacetDTO toBookAuthorFacetDTO(BookAuthorFacet bookAuthorFacet);
+
+    default BookMatchMode toBookMatchMode(String match) {
+        return match == null || match.isEmpty() ? null : BookMatchMode.of(match);
+    }
+}
@@ -1,35 +1,44 @@
 package br.com.a2da.libraryapi.api.controller.book;
 
 import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
 import br.com.a2da.libraryapi.core.service.book.BookQuery;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
 @Service
 public class BookMarshallerService {
 
-    // TODO - tests
-
-    private final ModelMapper modelMapper = new ModelMapper();
+    private final BookMapper bookMapper = BookMapper.INSTANCE;
 
     public BookDTO bindToBookDTO(Book bookInstance) {
-        return modelMapper.map(bookInstance, BookDTO.class);
+        return bookMapper.toBookDTO(bookInstance);
     }
 
     public Book bindToBookSave(BookForm bookForm) {
-        return modelMapper.map(bookForm, Book.class);
+        return bookMapper.toBook(bookForm);
     }
 
+    /*
+     * Retorna uma copia: bookInstance pode ser a instancia compartilhada pelo cache de findById.
+     * */
     public Book bindToBookUpdate(BookForm bookForm, Book bookInstance) {
 
-        bookInstance.setAuthor(bookForm.getAuthor());
-        bookInstance.setTitle(bookForm.getTitle());
-        bookInstance.setIsbn(bookForm.getIsbn());
+        Book bookToUpdate = bookMapper.copy(bookInstance);
+
+        bookMapper.updateBook(bookForm, bookToUpdate);
+
+        return bookToUpdate;
+    }
 
-        return bookInstance;
+    public Book bindToBookPatch(Long id, Long version, BookPatchForm bookPatchForm) {
+        return bookMapper.toBook(bookPatchForm, id, version);
     }
 
     public BookQuery bindBookQueryFormToBookQuery(BookQueryForm bookQueryForm) {
-        return modelMapper.map(bookQueryForm, BookQuery.class);
+        return bookMapper.toBookQuery(bookQueryForm);
+    }
+
+    public BookAuthorFacetDTO bindToBookAuthorFacetDTO(BookAuthorFacet bookAuthorFacet) {
+        return bookMapper.toBookAuthorFacetDTO(bookAuthorFacet);
     }
 }
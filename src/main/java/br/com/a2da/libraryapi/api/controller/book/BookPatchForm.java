@@ -0,0 +1,30 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Size;
+
+/*
+ * Corpo do PATCH: campos ausentes (null) nao sao alterados, mas os enviados nao podem ser vazios.
+ * version e a versao esperada, usada quando a requisicao nao traz If-Match.
+ * */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPatchForm {
+
+    @Size(min = 1)
+    private String title;
+
+    @Size(min = 1)
+    private String author;
+
+    @Size(min = 1)
+    private String isbn;
+
+    private Long version;
+}
@@ -15,4 +15,7 @@ public class BookQueryForm {
     private String title;
 
     private String author;
+
+    // exact, prefix ou contains (padrao)
+    private String match;
 }
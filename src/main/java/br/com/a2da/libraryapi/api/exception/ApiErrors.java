@@ -28,6 +28,10 @@ public class ApiErrors {
         this.errors = Arrays.asList(ex.getMessage());
     }
 
+    public ApiErrors(String message) {
+        this.errors = Arrays.asList(message);
+    }
+
     public List<String> getErrors() {
         return this.errors;
     }
@@ -0,0 +1,38 @@
+package br.com.a2da.libraryapi.config;
+
+import br.com.a2da.libraryapi.api.admission.BookAdmissionFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+// filtro de servlet: no profile "reactive" os endpoints nao passam por aqui
+@Profile("!reactive")
+@Configuration
+@ConditionalOnProperty(name = "library.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+    @Bean
+    public BookAdmissionFilter bookAdmissionFilter(ObjectMapper objectMapper,
+                                                   @Value("${library.admission.rate-limit.requests-per-second:100}") double requestsPerSecond,
+                                                   @Value("${library.admission.rate-limit.burst:200}") int burst,
+                                                   @Value("${library.admission.client-header:}") String clientHeader,
+                                                   @Value("${library.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        return new BookAdmissionFilter(objectMapper, requestsPerSecond, burst, clientHeader, retryAfterSeconds);
+    }
+
+    @Bean
+    public FilterRegistrationBean<BookAdmissionFilter> bookAdmissionFilterRegistration(BookAdmissionFilter bookAdmissionFilter) {
+
+        FilterRegistrationBean<BookAdmissionFilter> registration = new FilterRegistrationBean<>(bookAdmissionFilter);
+
+        registration.addUrlPatterns("/api/books", "/api/books/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+
+        return registration;
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.a2da.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.stereotype.Controller;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/*
+ * Profile "startup" (application-startup.properties): subida rapida para o autoscaling.
+ * Com spring.main.lazy-initialization=true os beans so sao criados no primeiro uso, menos:
+ *
+ * - o EntityManagerFactory, que com bootstrap-mode=deferred sobe em background enquanto o
+ *   resto do contexto e criado;
+ * - os controllers (e o que eles usam), para a primeira requisicao nao pagar a criacao deles.
+ *
+ * O indice de componentes e o arquivo AppCDS saem do build: mvn -P startup package.
+ * */
+@Slf4j
+@Profile("startup")
+@Configuration
+public class StartupConfiguration {
+
+    // static: o filtro e lido pelo post processor do lazy-init, antes desta classe existir
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (EntityManagerFactory.class.isAssignableFrom(beanType)
+                || AbstractEntityManagerFactoryBean.class.isAssignableFrom(beanType)
+                || AnnotatedElementUtils.hasAnnotation(beanType, Controller.class));
+    }
+
+    /*
+     * Execucao de treino do AppCDS (library.startup.training-run=true): sobe, faz um
+     * GET /api/books para carregar as classes do caminho da requisicao e encerra a JVM,
+     * que grava a lista de classes carregadas (-XX:DumpLoadedClassList).
+     * */
+    @Bean
+    @ConditionalOnProperty(name = "library.startup.training-run", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> startupTrainingRun() {
+        return event -> {
+
+            ConfigurableApplicationContext context = event.getApplicationContext();
+
+            if (context instanceof WebServerApplicationContext) {
+
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+                try {
+                    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/books").openConnection();
+                    log.info("Startup training run: GET /api/books returned {}", connection.getResponseCode());
+                    connection.disconnect();
+                } catch (IOException ex) {
+                    log.warn("Startup training run: GET /api/books failed", ex);
+                }
+            }
+
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.a2da.libraryapi.core.exception;
+
+// a fila recusou o item dentro do tempo de espera: o cliente deve tentar de novo mais tarde
+public class QueueFullException extends RuntimeException {
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
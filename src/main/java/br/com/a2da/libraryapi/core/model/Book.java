@@ -12,12 +12,23 @@ import javax.persistence.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_book_isbn", columnNames = "isbn"),
+        indexes = {
+                @Index(name = "idx_book_title_normalized", columnList = "title_normalized"),
+                @Index(name = "idx_book_author_normalized", columnList = "author_normalized"),
+                // paginacao por cursor: order by (chave, id) e o seek saem do indice
+                @Index(name = "idx_book_title_id", columnList = "title, id"),
+                @Index(name = "idx_book_author_id", columnList = "author, id"),
+                @Index(name = "idx_book_isbn_id", columnList = "isbn, id")
+        }
+)
 public class Book {
 
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -28,4 +39,25 @@ public class Book {
 
     @Column
     private String isbn;
+
+    @Version
+    @Column
+    private Long version;
+
+    /*
+     * title/author em minusculas e sem acentos, recalculados a cada insert/update.
+     * As buscas comparam essas colunas sem lower() no SQL, entao o indice e usado.
+     * */
+    @Column(name = "title_normalized")
+    private String titleNormalized;
+
+    @Column(name = "author_normalized")
+    private String authorNormalized;
+
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        titleNormalized = BookTextNormalizer.normalize(title);
+        authorNormalized = BookTextNormalizer.normalize(author);
+    }
 }
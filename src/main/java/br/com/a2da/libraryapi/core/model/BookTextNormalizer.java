@@ -0,0 +1,27 @@
+package br.com.a2da.libraryapi.core.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/*
+ * Minusculas e sem acentos: "Capitães da Areia" -> "capitaes da areia"
+ * */
+public final class BookTextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    private BookTextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+
+        if (text == null) {
+            return null;
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,9 +1,59 @@
 package br.com.a2da.libraryapi.core.repository;
 
 import br.com.a2da.libraryapi.core.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     boolean existsByIsbn(String isbn);
+
+    @Query("select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // DELETE direto, sem o findById que o deleteById/delete do Spring Data fazem antes
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id = :id")
+    int deleteBookById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteBooksByIdIn(@Param("ids") Collection<Long> ids);
+
+    Slice<Book> findByIdGreaterThan(Long id, Pageable pageable);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    @Query("select b.isbn from Book b")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllIsbns();
+
+    /*
+     * Cursor somente leitura para percorrer a tabela inteira; precisa de transacao aberta
+     * e de detach de cada livro para o persistence context nao crescer.
+     * */
+    @Query("select b from Book b")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<Book> streamAll();
 }
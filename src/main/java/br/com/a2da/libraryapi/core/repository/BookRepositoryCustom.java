@@ -0,0 +1,63 @@
+package br.com.a2da.libraryapi.core.repository;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookRepositoryCustom {
+
+    /*
+     * Proximos livros depois do cursor, ordenados por (cursor.property, id). Sem count(*) e sem OFFSET.
+     * */
+    List<Book> findAfter(Example<Book> example, BookCursor cursor, int limit);
+
+    /*
+     * Insere todos em uma unica transacao, em lotes JDBC (hibernate.jdbc.batch_size).
+     * */
+    void insertAll(List<Book> books);
+
+    /*
+     * Proximo id da sequence book_seq, pelo mesmo gerador (pooled, blocos de allocationSize)
+     * que o persist usa: ids reservados aqui nunca colidem com os do insert normal.
+     * */
+    Long nextId();
+
+    /*
+     * Insere livros que ja tem id (ver nextId) em uma unica transacao, com um INSERT em lote
+     * JDBC. Nao passa pelo persist: version comeca em 0 e as colunas normalizadas sao
+     * preenchidas aqui.
+     * */
+    void insertAllWithIds(List<Book> books);
+
+    void detach(Book book);
+
+    // pagina de findAll(example, pageable) sem o count(*)
+    List<Book> findContent(Example<Book> example, Pageable pageable);
+
+    // count limitado: retorna no maximo limit + 1
+    long countUpTo(Example<Book> example, long limit);
+
+    /*
+     * GROUP BY author_normalized dos livros do example: os limit autores com mais livros,
+     * opcionalmente so os cujo nome normalizado comeca com authorPrefix.
+     * */
+    List<BookAuthorFacet> countByAuthor(Example<Book> example, String authorPrefix, int limit);
+
+    /*
+     * Apaga, em uma transacao, os livros de ids que existem e retorna os ids apagados.
+     * As linhas sao travadas antes do delete: com deletes concorrentes dos mesmos ids,
+     * cada id e retornado por um so deles.
+     * */
+    List<Long> deleteAllExistingById(Collection<Long> ids);
+
+    /*
+     * UPDATE unico com os campos nao nulos de changes, where id = changes.id and version = changes.version.
+     * Retorna o numero de linhas alteradas (0: livro inexistente ou versao diferente).
+     * */
+    int patch(Book changes);
+}
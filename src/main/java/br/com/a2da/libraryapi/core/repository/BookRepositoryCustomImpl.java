@@ -0,0 +1,360 @@
+package br.com.a2da.libraryapi.core.repository;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final String INSERT_WITH_ID = "insert into book "
+            + "(id, title, author, isbn, version, title_normalized, author_normalized) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public List<Book> findAfter(Example<Book> example, BookCursor cursor, int limit) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        boolean ascending = cursor.getDirection() == Sort.Direction.ASC;
+        Path<Long> id = root.get("id");
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+
+        if ("id".equals(cursor.getProperty())) {
+
+            if (!cursor.isFirst()) {
+                filter = cb.and(filter, ascending
+                        ? cb.greaterThan(id, cursor.getLastId())
+                        : cb.lessThan(id, cursor.getLastId()));
+            }
+
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+
+        } else {
+
+            Path<String> key = root.get(cursor.getProperty());
+
+            if (!cursor.isFirst()) {
+                filter = cb.and(filter, seek(cb, key, id, cursor, ascending));
+            }
+
+            query.orderBy(
+                    ascending ? cb.asc(key) : cb.desc(key),
+                    ascending ? cb.asc(id) : cb.desc(id)
+            );
+        }
+
+        query.select(root).where(filter);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /*
+     * (key, id) depois de (lastValue, lastId) na ordem do cursor. Nulos sao os menores valores,
+     * como no H2: primeiro no ASC, por ultimo no DESC.
+     * */
+    private Predicate seek(CriteriaBuilder cb, Path<String> key, Path<Long> id, BookCursor cursor, boolean ascending) {
+
+        String lastValue = cursor.getLastValue();
+        Long lastId = cursor.getLastId();
+
+        if (lastValue == null) {
+            return ascending
+                    ? cb.or(cb.and(cb.isNull(key), cb.greaterThan(id, lastId)), cb.isNotNull(key))
+                    : cb.and(cb.isNull(key), cb.lessThan(id, lastId));
+        }
+
+        return ascending
+                ? cb.or(
+                cb.greaterThan(key, lastValue),
+                cb.and(cb.equal(key, lastValue), cb.greaterThan(id, lastId)))
+                : cb.or(
+                cb.lessThan(key, lastValue),
+                cb.and(cb.equal(key, lastValue), cb.lessThan(id, lastId)),
+                cb.isNull(key));
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Book> books) {
+
+        for (int i = 0; i < books.size(); i++) {
+
+            entityManager.persist(books.get(i));
+
+            // um flush por lote mantem o persistence context pequeno
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional
+    public Long nextId() {
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+
+        return (Long) session.getFactory().getMetamodel()
+                .entityPersister(Book.class)
+                .getIdentifierGenerator()
+                .generate(session, null);
+    }
+
+    @Override
+    @Transactional
+    public void insertAllWithIds(List<Book> books) {
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_WITH_ID)) {
+
+                for (int i = 0; i < books.size(); i++) {
+
+                    Book book = books.get(i);
+
+                    book.setVersion(0L);
+                    book.setTitleNormalized(BookTextNormalizer.normalize(book.getTitle()));
+                    book.setAuthorNormalized(BookTextNormalizer.normalize(book.getAuthor()));
+
+                    statement.setLong(1, book.getId());
+                    statement.setString(2, book.getTitle());
+                    statement.setString(3, book.getAuthor());
+                    statement.setString(4, book.getIsbn());
+                    statement.setLong(5, book.getVersion());
+                    statement.setString(6, book.getTitleNormalized());
+                    statement.setString(7, book.getAuthorNormalized());
+                    statement.addBatch();
+
+                    if ((i + 1) % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<Long> deleteAllExistingById(Collection<Long> ids) {
+
+        // select ... for update: um delete concorrente dos mesmos ids espera este commit
+        // e depois nao encontra nenhum, entao cada id apagado aparece em um so retorno
+        List<Long> existingIds = entityManager
+                .createQuery("select b.id from Book b where b.id in :ids", Long.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        if (!existingIds.isEmpty()) {
+            entityManager.createQuery("delete from Book b where b.id in :ids")
+                    .setParameter("ids", existingIds)
+                    .executeUpdate();
+        }
+
+        return existingIds;
+    }
+
+    @Override
+    @Transactional
+    public int patch(Book changes) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = cb.createCriteriaUpdate(Book.class);
+        Root<Book> root = update.from(Book.class);
+        Path<Long> version = root.get("version");
+
+        // CriteriaUpdate nao passa pelo @PreUpdate: as colunas normalizadas vao junto
+        if (changes.getTitle() != null) {
+            update.set(root.<String>get("title"), changes.getTitle());
+            update.set(root.<String>get("titleNormalized"), BookTextNormalizer.normalize(changes.getTitle()));
+        }
+
+        if (changes.getAuthor() != null) {
+            update.set(root.<String>get("author"), changes.getAuthor());
+            update.set(root.<String>get("authorNormalized"), BookTextNormalizer.normalize(changes.getAuthor()));
+        }
+
+        if (changes.getIsbn() != null) {
+            update.set(root.<String>get("isbn"), changes.getIsbn());
+        }
+
+        update.set(version, cb.sum(version, 1L));
+        update.where(
+                cb.equal(root.get("id"), changes.getId()),
+                cb.equal(version, changes.getVersion())
+        );
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Book> findContent(Example<Book> example, Pageable pageable) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.where(QueryByExamplePredicateBuilder.getPredicate(root, cb, example));
+
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        return typedQuery.getResultList();
+    }
+
+    /*
+     * count(*) sobre um subselect com limit: o banco para na linha limit + 1 e so um numero
+     * volta. JPQL nao tem subselect no from, entao o SQL e montado a partir do example, que
+     * aqui so pode filtrar pelas colunas normalizadas (ver BookServiceImpl.toExample).
+     * */
+    @Override
+    public long countUpTo(Example<Book> example, long limit) {
+
+        Book probe = example.getProbe();
+        ExampleMatcher matcher = example.getMatcher();
+
+        if (probe.getId() != null || probe.getTitle() != null || probe.getAuthor() != null
+                || probe.getIsbn() != null || probe.getVersion() != null
+                || matcher.isIgnoreCaseEnabled() || matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+            throw new IllegalArgumentException("countUpTo only filters by titleNormalized/authorNormalized");
+        }
+
+        StringBuilder sql = new StringBuilder("select count(*) from (select 1 from book where 1 = 1");
+
+        appendMatch(sql, "title_normalized", "title", probe.getTitleNormalized(), matcher.getDefaultStringMatcher());
+        appendMatch(sql, "author_normalized", "author", probe.getAuthorNormalized(), matcher.getDefaultStringMatcher());
+
+        sql.append(" limit :cap) limited");
+
+        Query query = entityManager.createNativeQuery(sql.toString())
+                .setParameter("cap", limit == Long.MAX_VALUE ? limit : limit + 1);
+
+        if (probe.getTitleNormalized() != null) {
+            query.setParameter("title", likePattern(probe.getTitleNormalized(), matcher.getDefaultStringMatcher()));
+        }
+
+        if (probe.getAuthorNormalized() != null) {
+            query.setParameter("author", likePattern(probe.getAuthorNormalized(), matcher.getDefaultStringMatcher()));
+        }
+
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    @Override
+    public List<BookAuthorFacet> countByAuthor(Example<Book> example, String authorPrefix, int limit) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Book> root = query.from(Book.class);
+
+        Path<String> author = root.get("authorNormalized");
+        Expression<Long> count = cb.count(root);
+        Predicate filter = cb.and(QueryByExamplePredicateBuilder.getPredicate(root, cb, example), cb.isNotNull(author));
+
+        if (authorPrefix != null && !authorPrefix.isEmpty()) {
+            filter = cb.and(filter, cb.like(author, EscapeCharacter.DEFAULT.escape(authorPrefix) + "%", EscapeCharacter.DEFAULT.getEscapeCharacter()));
+        }
+
+        // min(author): uma grafia para autores que so diferem em caixa ou acentos
+        query.multiselect(cb.least(root.<String>get("author")), count)
+                .where(filter)
+                .groupBy(author)
+                .orderBy(cb.desc(count), cb.asc(author));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(row -> new BookAuthorFacet((String) row[0], ((Number) row[1]).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static void appendMatch(StringBuilder sql, String column, String parameter, String value,
+                                    ExampleMatcher.StringMatcher stringMatcher) {
+
+        if (value == null) {
+            return;
+        }
+
+        switch (stringMatcher) {
+            case DEFAULT:
+            case EXACT:
+                sql.append(" and ").append(column).append(" = :").append(parameter);
+                break;
+            case STARTING:
+            case ENDING:
+            case CONTAINING:
+                sql.append(" and ").append(column).append(" like :").append(parameter)
+                        .append(" escape '").append(EscapeCharacter.DEFAULT.getEscapeCharacter()).append("'");
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported string matcher: " + stringMatcher);
+        }
+    }
+
+    private static String likePattern(String value, ExampleMatcher.StringMatcher stringMatcher) {
+
+        switch (stringMatcher) {
+            case STARTING:
+                return EscapeCharacter.DEFAULT.escape(value) + "%";
+            case ENDING:
+                return "%" + EscapeCharacter.DEFAULT.escape(value);
+            case CONTAINING:
+                return "%" + EscapeCharacter.DEFAULT.escape(value) + "%";
+            default:
+                return value;
+        }
+    }
+
+    @Override
+    public void detach(Book book) {
+        entityManager.detach(book);
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BookAuthorFacet {
+
+    private String author;
+
+    private long count;
+}
@@ -0,0 +1,27 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BookBatchResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATED
+    }
+
+    private Status status;
+
+    private Book book;
+
+    public static BookBatchResult created(Book book) {
+        return new BookBatchResult(Status.CREATED, book);
+    }
+
+    public static BookBatchResult duplicated(Book book) {
+        return new BookBatchResult(Status.DUPLICATED, book);
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+
+/*
+ * Notificado pelo BookServiceImpl depois que a escrita foi efetivada no banco.
+ * Usado pelas estruturas em memoria que precisam acompanhar a tabela book.
+ *
+ * bookUpdated pode receber um Book parcial (PATCH): campos nulos nao foram alterados.
+ * */
+public interface BookChangeListener {
+
+    default void bookSaved(Book book) {
+    }
+
+    default void bookUpdated(Book book) {
+    }
+
+    default void bookDeleted(Long id) {
+    }
+}
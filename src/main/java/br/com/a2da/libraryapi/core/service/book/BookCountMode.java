@@ -0,0 +1,26 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+/*
+ * Como o find calcula o total da pagina (e, na resposta, de onde o total veio):
+ *
+ * - EXACT: count(*) com os mesmos filtros da busca
+ * - ESTIMATED: contador mantido em memoria (sem filtros) ou count recente em cache (com filtros)
+ * - CAPPED: count interrompido no limite; o total e "pelo menos" esse valor
+ * */
+public enum BookCountMode {
+
+    EXACT,
+    ESTIMATED,
+    CAPPED;
+
+    public static BookCountMode of(String value) {
+
+        for (BookCountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+
+        throw new IllegalArgumentException("Modo de contagem invalido: " + value);
+    }
+}
@@ -0,0 +1,119 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/*
+ * Posicao de paginacao por keyset: (chave de ordenacao, id) do ultimo livro entregue.
+ * Vai para o cliente como string opaca (base64 url-safe). Chave nula e codificada sem o
+ * ultimo campo, diferente de uma chave vazia.
+ * */
+@Data
+@AllArgsConstructor
+public class BookCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final Set<String> SORTABLE_PROPERTIES = new HashSet<>(Arrays.asList("id", "title", "author", "isbn"));
+
+    private String property;
+
+    private Sort.Direction direction;
+
+    // null na primeira pagina
+    private Long lastId;
+
+    private String lastValue;
+
+    public static BookCursor first(Sort sort) {
+
+        Iterator<Sort.Order> orders = sort.iterator();
+
+        if (!orders.hasNext()) {
+            return new BookCursor("id", Sort.Direction.ASC, null, null);
+        }
+
+        Sort.Order order = orders.next();
+
+        if (orders.hasNext()) {
+            throw new IllegalArgumentException("Cursor pagination supports a single sort property");
+        }
+
+        return new BookCursor(checkProperty(order.getProperty()), order.getDirection(), null, null);
+    }
+
+    public static BookCursor decode(String cursor) {
+
+        String decoded;
+
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] parts = decoded.split("\\" + SEPARATOR, 4);
+
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        try {
+            return new BookCursor(
+                    checkProperty(parts[0]),
+                    Sort.Direction.fromString(parts[1]),
+                    Long.valueOf(parts[2]),
+                    "id".equals(parts[0]) || parts.length == 3 ? null : parts[3]
+            );
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public BookCursor after(Book book) {
+        return new BookCursor(property, direction, book.getId(), valueOf(book));
+    }
+
+    public String encode() {
+
+        String raw = property + SEPARATOR + direction + SEPARATOR + lastId
+                + (lastValue == null ? "" : SEPARATOR + lastValue);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String valueOf(Book book) {
+
+        switch (property) {
+            case "title":
+                return book.getTitle();
+            case "author":
+                return book.getAuthor();
+            case "isbn":
+                return book.getIsbn();
+            default:
+                return null;
+        }
+    }
+
+    private static String checkProperty(String property) {
+
+        if (!SORTABLE_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Cursor pagination cant sort by " + property);
+        }
+
+        return property;
+    }
+}
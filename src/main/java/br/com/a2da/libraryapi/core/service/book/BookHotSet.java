@@ -0,0 +1,211 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ * Conjunto quente dos livros: os ids mais acessados do cache "books" (politica do Caffeine)
+ * vao para um arquivo a cada save-interval-ms e no shutdown. Na subida esses ids sao lidos
+ * em blocos pelo findAllById, o que preenche o cache de findById e traz as paginas do H2
+ * para o cache dele (CACHE_SIZE), sem esperar o trafego aquecer os dois.
+ *
+ * O numero de ids (size) e limitado ao maximumSize do cache "books": ids alem dele seriam
+ * despejados logo depois de carregados. size <= 0 usa o cache inteiro.
+ *
+ * Ligado no profile "file"; com banco em memoria o arquivo nao teria o que reaquecer.
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "library.book.hot-set.enabled", havingValue = "true")
+public class BookHotSet {
+
+    private static final int WARM_CHUNK_SIZE = 1000;
+
+    private BookService bookService;
+    private CacheManager cacheManager;
+    private Path file;
+    private int size;
+
+    private volatile boolean warm;
+
+    public BookHotSet(BookService bookService,
+                      CacheManager cacheManager,
+                      @Value("${library.book.hot-set.file}") String file,
+                      @Value("${library.book.hot-set.size:0}") int size) {
+        this.bookService = bookService;
+        this.cacheManager = cacheManager;
+        this.file = Paths.get(file);
+        this.size = size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        Thread warmer = new Thread(this::warm, "book-hot-set-warmer");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /*
+     * Retorna quantos livros foram carregados; ids que nao existem mais sao ignorados.
+     * */
+    public int warm() {
+
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+
+        try {
+            List<Long> ids = read();
+
+            for (int from = 0; from < ids.size(); from += WARM_CHUNK_SIZE) {
+                loaded += bookService.findAllById(ids.subList(from, Math.min(from + WARM_CHUNK_SIZE, ids.size()))).size();
+            }
+
+            log.info("Book hot set warmed: {} of {} books in {} ms", loaded, ids.size(), System.currentTimeMillis() - start);
+
+        } catch (IOException | RuntimeException ex) {
+            log.error("Book hot set warm-up failed, books will be loaded on demand", ex);
+        } finally {
+            warm = true;
+        }
+
+        return loaded;
+    }
+
+    @PreDestroy
+    @Scheduled(
+            initialDelayString = "${library.book.hot-set.save-interval-ms:300000}",
+            fixedDelayString = "${library.book.hot-set.save-interval-ms:300000}"
+    )
+    public synchronized void save() {
+
+        // antes do warm-up o cache ainda esta frio e sobrescreveria o arquivo da subida anterior
+        if (!warm) {
+            return;
+        }
+
+        Collection<Long> ids = hottestIds();
+
+        // escreve em um arquivo temporario e troca: um crash no meio nao corrompe o anterior
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+
+                output.writeInt(ids.size());
+
+                for (Long id : ids) {
+                    output.writeLong(id);
+                }
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            log.debug("Book hot set saved: {} ids", ids.size());
+
+        } catch (IOException ex) {
+            log.error("Book hot set save failed", ex);
+        }
+    }
+
+    private List<Long> read() throws IOException {
+
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+            int count = Math.min(input.readInt(), limit());
+            List<Long> ids = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                ids.add(input.readLong());
+            }
+
+            return ids;
+        }
+    }
+
+    private Collection<Long> hottestIds() {
+
+        Optional<com.github.benmanes.caffeine.cache.Cache<Object, Object>> booksCache = booksCache();
+
+        if (!booksCache.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> books = booksCache.get();
+        int limit = limit();
+
+        // do mais para o menos acessado: com size menor na proxima subida ficam os mais quentes
+        Collection<Object> keys = books.policy().eviction()
+                .map(eviction -> eviction.hottest(limit).keySet())
+                .orElseGet(() -> books.asMap().keySet());
+
+        List<Long> ids = new ArrayList<>(Math.min(keys.size(), limit));
+
+        for (Object key : keys) {
+
+            if (ids.size() == limit) {
+                break;
+            }
+
+            if (key instanceof Long) {
+                ids.add((Long) key);
+            }
+        }
+
+        return ids;
+    }
+
+    private int limit() {
+
+        long maximum = booksCache()
+                .flatMap(books -> books.policy().eviction())
+                .map(Policy.Eviction::getMaximum)
+                .orElse(Long.MAX_VALUE);
+
+        return (int) Math.min(size > 0 ? Math.min(size, maximum) : maximum, Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<com.github.benmanes.caffeine.cache.Cache<Object, Object>> booksCache() {
+
+        Cache cache = cacheManager.getCache(BookService.BOOK_CACHE);
+
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            return Optional.empty();
+        }
+
+        return Optional.of((com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache());
+    }
+}
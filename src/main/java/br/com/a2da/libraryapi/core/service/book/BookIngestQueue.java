@@ -0,0 +1,364 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.exception.QueueFullException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.index.BookIsbnFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Criacao assincrona de livros (write-behind). enqueue valida o ISBN, reserva o ISBN e um id
+ * (da mesma sequence do insert normal) e coloca o livro em uma fila limitada; uma thread
+ * grava a fila em lotes, um INSERT em lote JDBC e um commit por lote (group commit).
+ *
+ * Fila cheia por mais de offerTimeoutMillis gera QueueFullException (backpressure).
+ * status(id) diz se o livro ainda esta na fila, ja foi gravado ou falhou; o resultado fica
+ * guardado por um tempo e depois a resposta vem do banco.
+ *
+ * enqueue e stop usam o mesmo lock: depois que stop retorna nenhum livro entra na fila, e todo
+ * livro aceito (202) ou foi gravado ou vira FAILED com erro no log, nunca some em silencio.
+ *
+ * Os ISBNs reservados so valem entre requisicoes assincronas: um POST sincrono com o mesmo
+ * ISBN pode chegar antes ao banco, e o indice unico faz o livro da fila terminar em FAILED.
+ * */
+@Slf4j
+@Service
+public class BookIngestQueue implements MeterBinder {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private BookRepository bookRepository;
+    private BookIsbnFilter bookIsbnFilter;
+    private List<BookChangeListener> bookChangeListeners;
+    private int batchSize;
+    private long lingerMillis;
+    private long offerTimeoutMillis;
+    private long shutdownTimeoutMillis;
+
+    private final BlockingQueue<Book> queue;
+    // leitura: enqueue (checa running e faz o offer); escrita: stop
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, Long> reservedIsbns = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Book> pending = new ConcurrentHashMap<>();
+    private final Cache<Long, BookIngestStatus> results = Caffeine.newBuilder()
+            .maximumSize(1_000_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public BookIngestQueue(BookRepository bookRepository,
+                           BookIsbnFilter bookIsbnFilter,
+                           List<BookChangeListener> bookChangeListeners,
+                           @Value("${library.book.ingest.capacity:10000}") int capacity,
+                           @Value("${library.book.ingest.batch-size:500}") int batchSize,
+                           @Value("${library.book.ingest.linger-ms:5}") long lingerMillis,
+                           @Value("${library.book.ingest.offer-timeout-ms:50}") long offerTimeoutMillis,
+                           @Value("${library.book.ingest.shutdown-timeout-ms:30000}") long shutdownTimeoutMillis) {
+        this.bookRepository = bookRepository;
+        this.bookIsbnFilter = bookIsbnFilter;
+        this.bookChangeListeners = bookChangeListeners;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMillis = lingerMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+
+        if (running) {
+            return;
+        }
+
+        running = true;
+        writer = new Thread(this::drain, "book-ingest-writer");
+        // nao segura a JVM: o shutdown passa pelo stop (@PreDestroy)
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /*
+     * Para de aceitar livros e espera a thread gravar o que ja estava na fila. Se o prazo
+     * acabar, os livros ainda na fila viram FAILED e stop lanca IllegalStateException.
+     * */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+
+        lifecycle.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+
+        writer.join(shutdownTimeoutMillis);
+
+        if (!writer.isAlive()) {
+            return;
+        }
+
+        List<Book> lost = new ArrayList<>();
+        queue.drainTo(lost);
+        lost.forEach(book -> failed(book, "Livro nao gravado: aplicacao desligada"));
+
+        // o lote que a thread esta gravando pode ou nao chegar ao banco
+        List<Long> writing = new ArrayList<>(pending.keySet());
+
+        log.error("Book ingest writer still running after {} ms: {} queued books not written {}, {} books still being written {}",
+                shutdownTimeoutMillis, lost.size(), ids(lost), writing.size(), writing);
+
+        throw new IllegalStateException(lost.size() + " queued books were not written before shutdown");
+    }
+
+    /*
+     * Retorna o id reservado para o livro. O livro so aparece no findById depois de gravado.
+     * */
+    public Long enqueue(Book book) {
+
+        lifecycle.readLock().lock();
+        try {
+            return offer(book);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    private Long offer(Book book) {
+
+        if (!running) {
+            rejected.increment();
+            throw new QueueFullException("Fila de criacao de livros parada");
+        }
+
+        String isbn = book.getIsbn();
+
+        if (reservedIsbns.putIfAbsent(isbn, 0L) != null) {
+            throw new BusinessException("Isbn ja cadastrado");
+        }
+
+        try {
+            // o filtro so evita a consulta quando o isbn certamente nao existe
+            if (bookIsbnFilter.mightContain(isbn) && bookRepository.existsByIsbn(isbn)) {
+                throw new BusinessException("Isbn ja cadastrado");
+            }
+
+            Long id = bookRepository.nextId();
+
+            book.setId(id);
+            reservedIsbns.put(isbn, id);
+            pending.put(id, book);
+
+            if (!queue.offer(book, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                pending.remove(id);
+                rejected.increment();
+                throw new QueueFullException("Fila de criacao de livros cheia");
+            }
+
+            accepted.increment();
+
+            return id;
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            pending.remove(book.getId());
+            reservedIsbns.remove(isbn);
+            rejected.increment();
+            throw new QueueFullException("Fila de criacao de livros cheia");
+        } catch (RuntimeException ex) {
+            reservedIsbns.remove(isbn);
+            throw ex;
+        }
+    }
+
+    public Optional<BookIngestStatus> status(Long id) {
+
+        if (pending.containsKey(id)) {
+            return Optional.of(BookIngestStatus.queued());
+        }
+
+        BookIngestStatus result = results.getIfPresent(id);
+
+        if (result != null) {
+            return Optional.of(result);
+        }
+
+        return bookRepository.findVersionById(id).map(version -> BookIngestStatus.persisted());
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+
+        while (running || !queue.isEmpty()) {
+
+            List<Book> batch = new ArrayList<>(batchSize);
+
+            try {
+                Book first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                // lote incompleto: espera um pouco por mais livros antes do commit
+                if (batch.size() < batchSize && lingerMillis > 0) {
+
+                    Book next = queue.poll(lingerMillis, TimeUnit.MILLISECONDS);
+
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+
+                write(batch);
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException ex) {
+                log.error("Book ingest batch failed", ex);
+                batch.forEach(book -> failed(book, "Erro ao gravar o livro"));
+            }
+        }
+    }
+
+    private void write(List<Book> batch) {
+
+        try {
+            bookRepository.insertAllWithIds(batch);
+            batches.increment();
+            batch.forEach(this::persisted);
+            return;
+        } catch (DataIntegrityViolationException ex) {
+            log.warn("Book ingest batch of {} rejected by a constraint, retrying one by one", batch.size());
+        }
+
+        // isola o livro cujo isbn ja foi gravado por outro caminho
+        for (Book book : batch) {
+            try {
+                bookRepository.insertAllWithIds(Collections.singletonList(book));
+                batches.increment();
+                persisted(book);
+            } catch (DataIntegrityViolationException ex) {
+                failed(book, "Isbn ja cadastrado");
+            }
+        }
+    }
+
+    private void persisted(Book book) {
+
+        if (results.getIfPresent(book.getId()) != null) {
+            return;
+        }
+
+        results.put(book.getId(), BookIngestStatus.persisted());
+        pending.remove(book.getId());
+        reservedIsbns.remove(book.getIsbn(), book.getId());
+        persisted.increment();
+
+        // o livro ja esta gravado: falha de um listener nao pode virar FAILED
+        for (BookChangeListener listener : bookChangeListeners) {
+            try {
+                listener.bookSaved(book);
+            } catch (RuntimeException ex) {
+                log.error("Book change listener failed for ingested book {}", book.getId(), ex);
+            }
+        }
+    }
+
+    private void failed(Book book, String error) {
+
+        if (results.getIfPresent(book.getId()) != null) {
+            return;
+        }
+
+        results.put(book.getId(), BookIngestStatus.failed(error));
+        pending.remove(book.getId());
+        reservedIsbns.remove(book.getIsbn(), book.getId());
+        failed.increment();
+    }
+
+    private static List<Long> ids(List<Book> books) {
+
+        List<Long> ids = new ArrayList<>(books.size());
+        books.forEach(book -> ids.add(book.getId()));
+
+        return ids;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("book.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Livros esperando gravacao na fila")
+                .register(registry);
+
+        FunctionCounter.builder("book.ingest.books", accepted, LongAdder::sum)
+                .description("Livros recebidos pela fila de criacao assincrona")
+                .tag("result", "accepted")
+                .register(registry);
+
+        FunctionCounter.builder("book.ingest.books", rejected, LongAdder::sum)
+                .description("Livros recebidos pela fila de criacao assincrona")
+                .tag("result", "rejected")
+                .register(registry);
+
+        FunctionCounter.builder("book.ingest.books", persisted, LongAdder::sum)
+                .description("Livros recebidos pela fila de criacao assincrona")
+                .tag("result", "persisted")
+                .register(registry);
+
+        FunctionCounter.builder("book.ingest.books", failed, LongAdder::sum)
+                .description("Livros recebidos pela fila de criacao assincrona")
+                .tag("result", "failed")
+                .register(registry);
+
+        FunctionCounter.builder("book.ingest.batches", batches, LongAdder::sum)
+                .description("Lotes de insert gravados com um commit cada")
+                .register(registry);
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/*
+ * Situacao de um livro aceito pelo BookIngestQueue. error so vem preenchido em FAILED.
+ * */
+@Data
+@AllArgsConstructor
+public class BookIngestStatus {
+
+    public enum Status {
+        QUEUED,
+        PERSISTED,
+        FAILED
+    }
+
+    private Status status;
+
+    private String error;
+
+    public static BookIngestStatus queued() {
+        return new BookIngestStatus(Status.QUEUED, null);
+    }
+
+    public static BookIngestStatus persisted() {
+        return new BookIngestStatus(Status.PERSISTED, null);
+    }
+
+    public static BookIngestStatus failed(String error) {
+        return new BookIngestStatus(Status.FAILED, error);
+    }
+}
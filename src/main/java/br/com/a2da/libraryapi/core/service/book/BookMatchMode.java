@@ -0,0 +1,73 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import org.springframework.data.domain.ExampleMatcher;
+
+/*
+ * Como title/author da BookQuery sao comparados com as colunas normalizadas
+ * (ver BookTextNormalizer). EXACT e PREFIX viram busca por faixa no indice da coluna;
+ * CONTAINS ("%termo%") percorre a tabela no banco e e o padrao da API.
+ * */
+public enum BookMatchMode {
+
+    EXACT(ExampleMatcher.StringMatcher.EXACT) {
+        @Override
+        public boolean matches(String value, String term) {
+            return value.equals(term);
+        }
+    },
+
+    PREFIX(ExampleMatcher.StringMatcher.STARTING) {
+        @Override
+        public boolean matches(String value, String term) {
+            return value.startsWith(term);
+        }
+    },
+
+    CONTAINS(ExampleMatcher.StringMatcher.CONTAINING) {
+        @Override
+        public boolean matches(String value, String term) {
+            return value.contains(term);
+        }
+    };
+
+    private final ExampleMatcher.StringMatcher stringMatcher;
+
+    BookMatchMode(ExampleMatcher.StringMatcher stringMatcher) {
+        this.stringMatcher = stringMatcher;
+    }
+
+    public ExampleMatcher.StringMatcher getStringMatcher() {
+        return stringMatcher;
+    }
+
+    // value e term ja normalizados e nao nulos
+    public abstract boolean matches(String value, String term);
+
+    // padrao do LIKE equivalente, para quem monta o SQL a mao
+    public String toLikePattern(String term) {
+
+        switch (this) {
+            case EXACT:
+                return term;
+            case PREFIX:
+                return term + "%";
+            default:
+                return "%" + term + "%";
+        }
+    }
+
+    public static BookMatchMode orDefault(BookMatchMode mode) {
+        return mode == null ? CONTAINS : mode;
+    }
+
+    public static BookMatchMode of(String value) {
+
+        for (BookMatchMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+
+        throw new IllegalArgumentException("Modo de busca invalido: " + value);
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import io.micrometer.core.instrument.*;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Metricas de todas as operacoes do BookService e do BookRepository:
+ *
+ * - book.service / book.repository: timers com histograma (p99 via histogram_quantile no Prometheus),
+ *   tags operation (nome do metodo) e exception (None quando nao houve erro)
+ * - book.service.business.exceptions: BusinessException por operacao (ISBN ja cadastrado)
+ * - book.find.results: tamanho das paginas retornadas por find/findSlice
+ * - book.find.last.total: total de elementos da ultima busca paginada
+ *
+ * Fica por fora do cache (ordem mais alta), entao findById mede o que o chamador enxerga.
+ * */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BookMetricsAspect {
+
+    private static final String NO_EXCEPTION = "None";
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary findResults;
+    private final AtomicLong lastFindTotal = new AtomicLong();
+
+    public BookMetricsAspect(MeterRegistry meterRegistry) {
+
+        this.meterRegistry = meterRegistry;
+
+        this.findResults = DistributionSummary.builder("book.find.results")
+                .description("Livros retornados por pagina em find/findSlice")
+                .baseUnit("books")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        Gauge.builder("book.find.last.total", lastFindTotal, AtomicLong::get)
+                .description("Total de livros da ultima busca paginada")
+                .baseUnit("books")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * br.com.a2da.libraryapi.core.service.book.BookService+.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        String operation = joinPoint.getSignature().getName();
+
+        try {
+            Object result = time("book.service", operation, joinPoint);
+
+            recordResultSize(result);
+
+            return result;
+
+        } catch (BusinessException ex) {
+
+            meterRegistry.counter("book.service.business.exceptions", "operation", operation).increment();
+
+            throw ex;
+        }
+    }
+
+    @Around("this(br.com.a2da.libraryapi.core.repository.BookRepository)"
+            + " && execution(public * *(..)) && !execution(* java.lang.Object.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("book.repository", joinPoint.getSignature().getName(), joinPoint);
+    }
+
+    private Object time(String name, String operation, ProceedingJoinPoint joinPoint) throws Throwable {
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = NO_EXCEPTION;
+
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder(name)
+                    .tag("operation", operation)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private void recordResultSize(Object result) {
+
+        if (result instanceof Slice) {
+            findResults.record(((Slice<?>) result).getNumberOfElements());
+        }
+
+        if (result instanceof Page) {
+            lastFindTotal.set(((Page<?>) result).getTotalElements());
+        }
+    }
+}
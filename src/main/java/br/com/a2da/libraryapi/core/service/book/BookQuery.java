@@ -16,4 +16,7 @@ public class BookQuery {
 
     private String author;
 
+    // null = CONTAINS
+    private BookMatchMode match;
+
 }
@@ -3,18 +3,45 @@ package br.com.a2da.libraryapi.core.service.book;
 import br.com.a2da.libraryapi.core.model.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
 
+    String BOOK_CACHE = "books";
+
     Book save(Book any);
 
+    List<BookBatchResult> saveAll(List<Book> books);
+
     Optional<Book> findById(Long id);
 
+    Optional<Long> findVersionById(Long id);
+
+    Map<Long, Book> findAllById(Collection<Long> ids);
+
     void delete(Book book);
 
+    boolean deleteById(Long id);
+
+    int deleteAllById(Collection<Long> ids);
+
     Book update(Book book);
 
+    Optional<Long> patch(Book changes);
+
     Page<Book> find(BookQuery filter, Pageable pageRequest);
+
+    Page<Book> find(BookQuery filter, Pageable pageRequest, BookCountMode countMode);
+
+    Slice<Book> findSlice(BookQuery filter, BookCursor cursor, int size);
+
+    List<BookAuthorFacet> findAuthorFacets(BookQuery filter, String prefix, int limit);
+
+    void export(Consumer<Book> consumer);
 }
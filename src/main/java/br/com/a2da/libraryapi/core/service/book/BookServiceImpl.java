@@ -2,40 +2,244 @@ package br.com.a2da.libraryapi.core.service.book;
 
 import br.com.a2da.libraryapi.core.exception.BusinessException;
 import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
 import br.com.a2da.libraryapi.core.repository.BookRepository;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import br.com.a2da.libraryapi.core.service.book.index.BookAuthorFacets;
+import br.com.a2da.libraryapi.core.service.book.index.BookCounter;
+import br.com.a2da.libraryapi.core.service.book.index.BookIsbnFilter;
+import br.com.a2da.libraryapi.core.service.book.index.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final int ISBN_QUERY_CHUNK_SIZE = 1000;
+    private static final int ID_CHUNK_SIZE = 1000;
+
     private BookRepository bookRepository;
+    private BookSearchIndex bookSearchIndex;
+    private BookIsbnFilter bookIsbnFilter;
+    private BookCounter bookCounter;
+    private BookAuthorFacets bookAuthorFacets;
+    private BookSingleFlight bookSingleFlight;
+    private CacheManager cacheManager;
+    private List<BookChangeListener> bookChangeListeners;
+    private BookCountMode countMode;
+    private long countCap;
 
-    public BookServiceImpl(BookRepository bookRepository) {
+    public BookServiceImpl(BookRepository bookRepository,
+                           BookSearchIndex bookSearchIndex,
+                           BookIsbnFilter bookIsbnFilter,
+                           BookCounter bookCounter,
+                           BookAuthorFacets bookAuthorFacets,
+                           BookSingleFlight bookSingleFlight,
+                           CacheManager cacheManager,
+                           List<BookChangeListener> bookChangeListeners,
+                           @Value("${library.book.count.mode:exact}") String countMode,
+                           @Value("${library.book.count.cap:10000}") long countCap) {
         this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookIsbnFilter = bookIsbnFilter;
+        this.bookCounter = bookCounter;
+        this.bookAuthorFacets = bookAuthorFacets;
+        this.bookSingleFlight = bookSingleFlight;
+        this.cacheManager = cacheManager;
+        this.bookChangeListeners = bookChangeListeners;
+        this.countMode = BookCountMode.of(countMode);
+        this.countCap = countCap;
     }
 
     @Override
     public Book save(Book bookInstance) {
 
-        if (bookRepository.existsByIsbn(bookInstance.getIsbn())) {
+        // o filtro so evita a consulta quando o isbn certamente nao existe
+        if (bookIsbnFilter.mightContain(bookInstance.getIsbn())
+                && bookRepository.existsByIsbn(bookInstance.getIsbn())) {
             throw new BusinessException("Isbn ja cadastrado");
         }
 
-        return bookRepository.save(bookInstance);
+        Book bookSaved = saveUniqueIsbn(bookInstance);
+
+        bookChangeListeners.forEach(listener -> listener.bookSaved(bookSaved));
+
+        return bookSaved;
     }
 
+    /*
+     * Um unico "isbn in (...)" por lote de ISBNs em vez de um existsByIsbn por livro.
+     * O resultado i corresponde ao livro i da lista.
+     * */
     @Override
+    public List<BookBatchResult> saveAll(List<Book> books) {
+
+        Set<String> isbns = books.stream()
+                .map(Book::getIsbn)
+                .filter(isbn -> bookIsbnFilter.mightContain(isbn))
+                .collect(Collectors.toSet());
+
+        Set<String> registeredIsbns = new HashSet<>();
+        List<String> isbnList = new ArrayList<>(isbns);
+
+        for (int from = 0; from < isbnList.size(); from += ISBN_QUERY_CHUNK_SIZE) {
+            registeredIsbns.addAll(bookRepository.findIsbnsIn(
+                    isbnList.subList(from, Math.min(from + ISBN_QUERY_CHUNK_SIZE, isbnList.size()))
+            ));
+        }
+
+        List<BookBatchResult> results = new ArrayList<>(books.size());
+        List<Book> booksToInsert = new ArrayList<>(books.size());
+        List<Integer> insertIndexes = new ArrayList<>(books.size());
+
+        for (Book book : books) {
+
+            // registeredIsbns tambem recebe os ISBNs do proprio lote
+            if (registeredIsbns.add(book.getIsbn())) {
+                booksToInsert.add(book);
+                insertIndexes.add(results.size());
+                results.add(BookBatchResult.created(book));
+            } else {
+                results.add(BookBatchResult.duplicated(book));
+            }
+        }
+
+        List<Book> booksSaved;
+
+        try {
+            bookRepository.insertAll(booksToInsert);
+            booksSaved = booksToInsert;
+        } catch (DataIntegrityViolationException ex) {
+            // outro lote gravou um dos isbns depois da consulta
+            booksSaved = insertOneByOne(booksToInsert, insertIndexes, results);
+        }
+
+        booksSaved.forEach(book -> bookChangeListeners.forEach(listener -> listener.bookSaved(book)));
+
+        return results;
+    }
+
+    /*
+     * O insert do lote foi desfeito inteiro: cada livro e gravado na sua propria transacao e
+     * so o que bater em uk_book_isbn vira duplicated. Os ids e versions atribuidos na
+     * tentativa sao descartados antes (o persist recusaria um livro com id).
+     * */
+    private List<Book> insertOneByOne(List<Book> books, List<Integer> indexes, List<BookBatchResult> results) {
+
+        List<Book> booksSaved = new ArrayList<>(books.size());
+
+        for (int i = 0; i < books.size(); i++) {
+
+            Book book = books.get(i);
+            book.setId(null);
+            book.setVersion(null);
+
+            try {
+                bookRepository.insertAll(Collections.singletonList(book));
+                booksSaved.add(book);
+            } catch (DataIntegrityViolationException ex) {
+                results.set(indexes.get(i), BookBatchResult.duplicated(book));
+            }
+        }
+
+        return booksSaved;
+    }
+
+    /*
+     * O livro vai para o cache desanexado do persistence context: um merge (update) nunca
+     * altera a instancia compartilhada, nem quando o flush falha.
+     * */
+    @Override
+    @Cacheable(cacheNames = BOOK_CACHE, key = "#id", unless = "#result == null")
     public Optional<Book> findById(Long id) {
-        return bookRepository.findById(id);
+        // misses concorrentes do mesmo id fazem uma so consulta
+        return bookSingleFlight.findById(id, () -> bookRepository.findById(id).map(this::detach));
+    }
+
+    /*
+     * Versao atual sem carregar a entidade: primeiro o cache de findById,
+     * depois uma projecao so da coluna version pela chave primaria.
+     * */
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+
+        Cache cache = cacheManager.getCache(BOOK_CACHE);
+        Book cachedBook = cache == null ? null : cache.get(id, Book.class);
+
+        if (cachedBook != null) {
+            return Optional.ofNullable(cachedBook.getVersion());
+        }
+
+        return bookRepository.findVersionById(id);
+    }
+
+    /*
+     * Livros encontrados, por id e na ordem recebida (ids inexistentes ficam de fora).
+     * O que ja esta no cache de findById nao vai ao banco; o resto e lido em blocos de
+     * "id in (...)" e passa a ficar no cache.
+     * */
+    @Override
+    public Map<Long, Book> findAllById(Collection<Long> ids) {
+
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Cache cache = cacheManager.getCache(BOOK_CACHE);
+        Map<Long, Book> booksById = new HashMap<>();
+        List<Long> idsToLoad = new ArrayList<>();
+
+        for (Long id : distinctIds) {
+
+            Book cachedBook = cache == null ? null : cache.get(id, Book.class);
+
+            if (cachedBook != null) {
+                booksById.put(id, cachedBook);
+            } else {
+                idsToLoad.add(id);
+            }
+        }
+
+        for (int from = 0; from < idsToLoad.size(); from += ID_CHUNK_SIZE) {
+
+            for (Book book : bookRepository.findAllById(
+                    idsToLoad.subList(from, Math.min(from + ID_CHUNK_SIZE, idsToLoad.size())))) {
+
+                booksById.put(book.getId(), book);
+
+                if (cache != null) {
+                    cache.putIfAbsent(book.getId(), detach(book));
+                }
+            }
+        }
+
+        Map<Long, Book> result = new LinkedHashMap<>();
+
+        for (Long id : distinctIds) {
+
+            Book book = booksById.get(id);
+
+            if (book != null) {
+                result.put(id, book);
+            }
+        }
+
+        return result;
     }
 
     @Override
+    @CacheEvict(cacheNames = BOOK_CACHE, key = "#book.id")
     public void delete(Book book) {
 
         if (book == null || book.getId() == null) {
@@ -43,39 +247,320 @@ public class BookServiceImpl implements BookService {
         }
 
         bookRepository.delete(book);
+
+        bookChangeListeners.forEach(listener -> listener.bookDeleted(book.getId()));
     }
 
+    /*
+     * Um unico DELETE pelo id; false quando nenhuma linha foi apagada (livro inexistente).
+     * */
     @Override
+    @CacheEvict(cacheNames = BOOK_CACHE, key = "#id")
+    public boolean deleteById(Long id) {
+
+        if (id == null) {
+            throw new IllegalArgumentException("Book id cant be null");
+        }
+
+        if (bookRepository.deleteBookById(id) == 0) {
+            return false;
+        }
+
+        bookChangeListeners.forEach(listener -> listener.bookDeleted(id));
+
+        return true;
+    }
+
+    /*
+     * Por bloco de ID_CHUNK_SIZE ids, uma transacao: select dos ids existentes (travados) e
+     * um "delete ... where id in (...)". Retorna quantos livros foram apagados; ids
+     * inexistentes, ou apagados por outra chamada, sao ignorados.
+     * */
+    @Override
+    public int deleteAllById(Collection<Long> ids) {
+
+        List<Long> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        Cache cache = cacheManager.getCache(BOOK_CACHE);
+        int deleted = 0;
+
+        for (int from = 0; from < idList.size(); from += ID_CHUNK_SIZE) {
+
+            List<Long> deletedIds = bookRepository.deleteAllExistingById(
+                    idList.subList(from, Math.min(from + ID_CHUNK_SIZE, idList.size()))
+            );
+
+            deleted += deletedIds.size();
+
+            // so os ids apagados por esta chamada: o BookCounter decrementa um por aviso
+            for (Long id : deletedIds) {
+
+                if (cache != null) {
+                    cache.evict(id);
+                }
+
+                bookChangeListeners.forEach(listener -> listener.bookDeleted(id));
+            }
+        }
+
+        return deleted;
+    }
+
+    /*
+     * Remove do cache antes (o update pode falhar no flush, ex.: isbn duplicado) e depois
+     * (uma leitura concorrente pode ter recolocado a versao anterior).
+     * */
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOK_CACHE, key = "#book.id", beforeInvocation = true),
+            @CacheEvict(cacheNames = BOOK_CACHE, key = "#book.id")
+    })
     public Book update(Book book) {
 
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id cant be null");
         }
 
-        return bookRepository.save(book);
+        Book bookUpdated = saveUniqueIsbn(book);
+
+        bookChangeListeners.forEach(listener -> listener.bookUpdated(bookUpdated));
+
+        return bookUpdated;
+    }
+
+    /*
+     * Um unico UPDATE com os campos nao nulos de changes, condicionado a changes.version.
+     * Retorna a nova versao, ou vazio quando o livro nao existe; se a versao mudou
+     * lanca ObjectOptimisticLockingFailureException. Os listeners recebem o Book parcial.
+     * */
+    @Override
+    @CacheEvict(cacheNames = BOOK_CACHE, key = "#changes.id")
+    public Optional<Long> patch(Book changes) {
+
+        if (changes == null || changes.getId() == null) {
+            throw new IllegalArgumentException("Book id cant be null");
+        }
+
+        if (changes.getVersion() == null) {
+            throw new IllegalArgumentException("Book version cant be null");
+        }
+
+        int updated;
+
+        try {
+            updated = bookRepository.patch(changes);
+        } catch (DataIntegrityViolationException ex) {
+            throw new BusinessException("Isbn ja cadastrado");
+        }
+
+        if (updated == 0) {
+
+            // so no caminho de falha: distingue livro inexistente de versao desatualizada
+            if (!bookRepository.existsById(changes.getId())) {
+                return Optional.empty();
+            }
+
+            throw new ObjectOptimisticLockingFailureException(Book.class, changes.getId());
+        }
+
+        Book bookPatched = Book.builder()
+                .id(changes.getId())
+                .title(changes.getTitle())
+                .author(changes.getAuthor())
+                .isbn(changes.getIsbn())
+                .version(changes.getVersion() + 1)
+                .build();
+
+        bookChangeListeners.forEach(listener -> listener.bookUpdated(bookPatched));
+
+        return Optional.of(bookPatched.getVersion());
+    }
+
+    private Book detach(Book book) {
+        bookRepository.detach(book);
+        return book;
+    }
+
+    private Page<Book> detach(Page<Book> page) {
+        page.getContent().forEach(bookRepository::detach);
+        return page;
+    }
+
+    private Book saveUniqueIsbn(Book book) {
+
+        try {
+            return bookRepository.save(book);
+        } catch (DataIntegrityViolationException ex) {
+            // uk_book_isbn: cadastro concorrente passou pela verificacao ao mesmo tempo
+            throw new BusinessException("Isbn ja cadastrado");
+        }
     }
 
     @Override
     public Page<Book> find(BookQuery bookQuery, Pageable pageRequest) {
+        return find(bookQuery, pageRequest, countMode);
+    }
+
+    /*
+     * O indice em memoria ja devolve todos os ids, entao o total e sempre exato. No banco,
+     * countMode decide como o total e obtido quando a pagina nao o revela sozinha
+     * (ver BookCountMode); a resposta e uma CountedPage com o tipo do total.
+     * */
+    @Override
+    public Page<Book> find(BookQuery bookQuery, Pageable pageRequest, BookCountMode countMode) {
+        // buscas identicas em andamento sao compartilhadas (por isso os livros saem desanexados)
+        return bookSingleFlight.find(bookQuery, pageRequest, countMode, () -> detach(findPage(bookQuery, pageRequest, countMode)));
+    }
+
+    private Page<Book> findPage(BookQuery bookQuery, Pageable pageRequest, BookCountMode countMode) {
+
+        long[] ids = bookSearchIndex.search(bookQuery, pageRequest.getSort());
+
+        if (ids != null) {
+            return findPageByIds(ids, pageRequest);
+        }
+
+        Example<Book> example = toExample(bookQuery);
+
+        if (countMode == BookCountMode.EXACT) {
+
+            Page<Book> page = bookRepository.findAll(example, pageRequest);
+
+            return new CountedPage<>(page.getContent(), pageRequest, page.getTotalElements(), BookCountMode.EXACT);
+        }
+
+        List<Book> content = bookRepository.findContent(example, pageRequest);
 
-        // TODO - usar criteria????
-        // https://www.baeldung.com/spring-data-criteria-queries
+        // pagina incompleta (ou sem paginacao): o total sai do proprio conteudo
+        if (pageRequest.isUnpaged()
+                || (content.size() < pageRequest.getPageSize() && (!content.isEmpty() || pageRequest.getOffset() == 0))) {
+            long total = pageRequest.isUnpaged() ? content.size() : pageRequest.getOffset() + content.size();
+            return new CountedPage<>(content, pageRequest, total, BookCountMode.EXACT);
+        }
+
+        if (bookQuery.getTitle() == null && bookQuery.getAuthor() == null && bookCounter.isReady()) {
+            return new CountedPage<>(content, pageRequest, bookCounter.total(), BookCountMode.ESTIMATED);
+        }
+
+        if (countMode == BookCountMode.ESTIMATED) {
+
+            Long estimate = bookCounter.estimate(bookQuery);
+
+            if (estimate != null) {
+                return new CountedPage<>(content, pageRequest, estimate, BookCountMode.ESTIMATED);
+            }
+
+            long total = bookRepository.count(example);
+            bookCounter.putEstimate(bookQuery, total);
+
+            return new CountedPage<>(content, pageRequest, total, BookCountMode.EXACT);
+        }
+
+        long total = bookRepository.countUpTo(example, countCap);
+
+        return total > countCap
+                ? new CountedPage<>(content, pageRequest, countCap, BookCountMode.CAPPED)
+                : new CountedPage<>(content, pageRequest, total, BookCountMode.EXACT);
+    }
+
+    @Override
+    public Slice<Book> findSlice(BookQuery bookQuery, BookCursor cursor, int size) {
+
+        // busca um a mais so para saber se existe proxima pagina
+        List<Book> books = bookRepository.findAfter(toExample(bookQuery), cursor, size + 1);
+
+        boolean hasNext = books.size() > size;
+        List<Book> content = hasNext ? books.subList(0, size) : books;
+
+        return new SliceImpl<>(
+                content,
+                PageRequest.of(0, size, Sort.by(cursor.getDirection(), cursor.getProperty())),
+                hasNext
+        );
+    }
+
+    /*
+     * Totais por autor sem GROUP BY: sem filtros direto do BookAuthorFacets; com filtros,
+     * so dos ids que o BookSearchIndex encontrou. Enquanto algum dos dois nao pode responder
+     * (carregando ou desabilitado), o GROUP BY vai ao banco.
+     * */
+    @Override
+    public List<BookAuthorFacet> findAuthorFacets(BookQuery bookQuery, String prefix, int limit) {
+
+        boolean filtered = bookQuery.getTitle() != null || bookQuery.getAuthor() != null;
+        long[] ids = filtered ? bookSearchIndex.search(bookQuery, Sort.unsorted()) : null;
+
+        if (!filtered || ids != null) {
+
+            List<BookAuthorFacet> facets = bookAuthorFacets.top(ids, prefix, limit);
+
+            if (facets != null) {
+                return facets;
+            }
+        }
+
+        return bookRepository.countByAuthor(toExample(bookQuery), BookTextNormalizer.normalize(prefix), limit);
+    }
+
+    /*
+     * Percorre todos os livros com um cursor (memoria constante): cada livro e descartado
+     * do persistence context depois de entregue ao consumer.
+     * */
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Consumer<Book> consumer) {
+
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                bookRepository.detach(book);
+            });
+        }
+    }
+
+    private Example<Book> toExample(BookQuery bookQuery) {
+
+        // filtra pelas colunas normalizadas (indexadas), sem lower() no SQL
 
         Book book = new Book();
-        book.setAuthor(bookQuery.getAuthor());
-        book.setTitle(bookQuery.getTitle());
+        book.setAuthorNormalized(BookTextNormalizer.normalize(bookQuery.getAuthor()));
+        book.setTitleNormalized(BookTextNormalizer.normalize(bookQuery.getTitle()));
 
-        Example<Book> example = Example.of(
+        return Example.of(
                 book,
                 ExampleMatcher
                         .matching()
-                        .withIgnoreCase()
                         .withIgnoreNullValues()
                         .withStringMatcher(
-                                ExampleMatcher.StringMatcher.CONTAINING
+                                BookMatchMode.orDefault(bookQuery.getMatch()).getStringMatcher()
                         )
         );
+    }
+
+    /*
+     * ids vem do indice ja filtrados e ordenados: o banco so carrega os livros da pagina
+     * */
+    private Page<Book> findPageByIds(long[] ids, Pageable pageRequest) {
+
+        int from = pageRequest.isPaged() ? (int) Math.min(pageRequest.getOffset(), ids.length) : 0;
+        int to = pageRequest.isPaged() ? Math.min(from + pageRequest.getPageSize(), ids.length) : ids.length;
+
+        List<Long> pageIds = new ArrayList<>(to - from);
+
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+
+        Map<Long, Book> booksById = pageIds.isEmpty()
+                ? Collections.<Long, Book>emptyMap()
+                : bookRepository.findAllById(pageIds)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        List<Book> content = pageIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
-        return bookRepository.findAll(example, pageRequest);
+        return new CountedPage<>(content, pageRequest, ids.length, BookCountMode.EXACT);
     }
 }
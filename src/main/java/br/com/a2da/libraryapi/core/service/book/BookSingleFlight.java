@@ -0,0 +1,65 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/*
+ * Leituras concorrentes e identicas do BookServiceImpl viram uma so ida ao banco:
+ * findById por id (depois do miss no cache "books") e find por BookQuery + Pageable + modo de count.
+ *
+ * Os livros devolvidos sao compartilhados entre as requisicoes, como ja acontece com o
+ * cache de findById. O BookServiceImpl os entrega desanexados do persistence context de quem
+ * executou a consulta; quem precisa alterar trabalha em uma copia.
+ * */
+@Component
+public class BookSingleFlight implements MeterBinder {
+
+    private final SingleFlight<Long, Optional<Book>> findById = new SingleFlight<>();
+    private final SingleFlight<List<Object>, Page<Book>> find = new SingleFlight<>();
+
+    public Optional<Book> findById(Long id, Supplier<Optional<Book>> call) {
+        return findById.execute(id, call);
+    }
+
+    public Page<Book> find(BookQuery bookQuery, Pageable pageRequest, BookCountMode countMode, Supplier<Page<Book>> call) {
+        return find.execute(Arrays.asList(bookQuery, pageRequest, countMode), call);
+    }
+
+    public long getCoalesced() {
+        return findById.getCoalesced() + find.getCoalesced();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("book.singleflight.coalesced", findById, SingleFlight::getCoalesced)
+                .description("Leituras que reaproveitaram uma consulta identica em andamento")
+                .tag("operation", "findById")
+                .register(registry);
+
+        FunctionCounter.builder("book.singleflight.coalesced", find, SingleFlight::getCoalesced)
+                .description("Leituras que reaproveitaram uma consulta identica em andamento")
+                .tag("operation", "find")
+                .register(registry);
+
+        FunctionCounter.builder("book.singleflight.executed", findById, SingleFlight::getExecuted)
+                .description("Leituras que foram ao banco")
+                .tag("operation", "findById")
+                .register(registry);
+
+        FunctionCounter.builder("book.singleflight.executed", find, SingleFlight::getExecuted)
+                .description("Leituras que foram ao banco")
+                .tag("operation", "find")
+                .register(registry);
+    }
+}
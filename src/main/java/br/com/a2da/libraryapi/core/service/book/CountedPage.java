@@ -0,0 +1,28 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/*
+ * Page que informa de onde veio o totalElements (serializado como "totalType").
+ * */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final BookCountMode totalType;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, BookCountMode totalType) {
+        super(content, pageable, total);
+        this.totalType = totalType;
+    }
+
+    public BookCountMode getTotalType() {
+        return totalType;
+    }
+
+    public static BookCountMode totalTypeOf(Page<?> page) {
+        return page instanceof CountedPage ? ((CountedPage<?>) page).getTotalType() : BookCountMode.EXACT;
+    }
+}
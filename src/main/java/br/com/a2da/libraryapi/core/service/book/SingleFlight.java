@@ -0,0 +1,74 @@
+package br.com.a2da.libraryapi.core.service.book;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Chamadas concorrentes com a mesma chave compartilham uma unica execucao: a primeira
+ * executa, as outras esperam e recebem o mesmo resultado (ou a mesma excecao).
+ * Nada fica guardado depois que a chamada termina; isso e papel do cache.
+ * */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> call) {
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, flight);
+
+        if (inFlight != null) {
+            coalesced.increment();
+            return join(inFlight);
+        }
+
+        executed.increment();
+
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    // chamadas que foram de fato executadas
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    // chamadas que aproveitaram uma execucao em andamento
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Total de livros por autor, mantido em memoria e atualizado a cada save/update/delete,
+ * para GET /api/books/facets/authors nao precisar de um GROUP BY na tabela book.
+ *
+ * - cada autor (normalizado) ganha um ordinal int; os totais ficam em um int[] por ordinal
+ * - livro -> ordinal do autor em um LongIntHashMap, para o delete (que so traz o id) e para
+ *   contar so os livros de uma busca
+ * - ordinais nao sao reaproveitados: autor sem livros fica com total 0 e nao aparece
+ *
+ * Enquanto a carga inicial nao termina, top retorna null e o service usa o banco.
+ * */
+@Slf4j
+@Component
+public class BookAuthorFacets implements BookChangeListener {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Integer> ordinalByAuthor = new TreeMap<>();
+    private final LongIntHashMap ordinalByBookId = new LongIntHashMap();
+    private final Set<Long> deletedWhileLoading = new HashSet<>();
+    // autor normalizado (ordenacao e prefixo) e como exibido (do livro mais recente)
+    private String[] authors = new String[1024];
+    private String[] names = new String[1024];
+    private int[] counts = new int[1024];
+    private int authorCount;
+    private boolean loading;
+    private volatile boolean ready;
+
+    public BookAuthorFacets(BookRepository bookRepository,
+                            @Value("${library.book.facets.enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        if (!enabled) {
+            return;
+        }
+
+        Thread loader = new Thread(this::load, "book-author-facets-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public void load() {
+
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long lastId = Long.MIN_VALUE;
+            Slice<Book> slice;
+
+            do {
+                slice = bookRepository.findByIdGreaterThan(
+                        lastId,
+                        PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id"))
+                );
+
+                lock.writeLock().lock();
+                try {
+                    for (Book book : slice) {
+
+                        // alteracoes recebidas durante a carga sao mais novas que a leitura
+                        if (!ordinalByBookId.containsKey(book.getId()) && !deletedWhileLoading.contains(book.getId())) {
+                            add(book.getId(), book.getAuthor());
+                        }
+
+                        lastId = book.getId();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+            } while (slice.hasNext());
+
+            ready = true;
+
+            log.info("Book author facets loaded: {} authors in {} ms", authorCount, System.currentTimeMillis() - start);
+
+        } catch (RuntimeException ex) {
+            log.error("Book author facets load failed, facets will keep using the database", ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                deletedWhileLoading.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /*
+     * Os limit autores com mais livros, do maior para o menor total (empate: ordem do nome
+     * normalizado). prefix filtra pelo inicio do nome ignorando caixa e acentos; bookIds
+     * restringe a contagem a esses livros (resultado de uma busca), null = catalogo inteiro.
+     * Retorna null quando o indice nao pode responder (desabilitado ou carregando).
+     * */
+    public List<BookAuthorFacet> top(long[] bookIds, String prefix, int limit) {
+
+        if (!enabled || !ready) {
+            return null;
+        }
+
+        String authorPrefix = BookTextNormalizer.normalize(prefix);
+
+        if (authorPrefix != null && authorPrefix.isEmpty()) {
+            authorPrefix = null;
+        }
+
+        lock.readLock().lock();
+        try {
+            TopAuthors top = new TopAuthors(limit);
+
+            if (bookIds != null) {
+                countMatches(bookIds, authorPrefix, top);
+            } else if (authorPrefix != null) {
+                for (int ordinal : ordinalByAuthor.subMap(authorPrefix, true, authorPrefix + Character.MAX_VALUE, false).values()) {
+                    top.offer(ordinal, counts[ordinal]);
+                }
+            } else {
+                for (int ordinal = 0; ordinal < authorCount; ordinal++) {
+                    top.offer(ordinal, counts[ordinal]);
+                }
+            }
+
+            return top.toList();
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        change(book.getId(), book.getAuthor());
+    }
+
+    // Book parcial (PATCH): author nulo = autor nao mudou
+    @Override
+    public void bookUpdated(Book book) {
+
+        if (book.getAuthor() != null) {
+            change(book.getId(), book.getAuthor());
+        }
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(id);
+
+            if (loading) {
+                deletedWhileLoading.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void change(Long bookId, String author) {
+
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(bookId);
+            add(bookId, author);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long bookId, String author) {
+
+        String key = BookTextNormalizer.normalize(author);
+
+        if (key == null) {
+            return;
+        }
+
+        Integer ordinal = ordinalByAuthor.get(key);
+
+        if (ordinal == null) {
+
+            if (authorCount == counts.length) {
+                int capacity = authorCount * 2;
+                authors = Arrays.copyOf(authors, capacity);
+                names = Arrays.copyOf(names, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+
+            ordinal = authorCount++;
+            authors[ordinal] = key;
+            ordinalByAuthor.put(key, ordinal);
+        }
+
+        names[ordinal] = author;
+        counts[ordinal]++;
+        ordinalByBookId.put(bookId, ordinal);
+    }
+
+    private void remove(long bookId) {
+
+        int ordinal = ordinalByBookId.remove(bookId);
+
+        if (ordinal != LongIntHashMap.MISSING) {
+            counts[ordinal]--;
+        }
+    }
+
+    // ordinais dos livros encontrados, ordenados: cada sequencia de iguais e o total do autor
+    private void countMatches(long[] bookIds, String authorPrefix, TopAuthors top) {
+
+        int[] ordinals = new int[bookIds.length];
+        int size = 0;
+
+        for (long bookId : bookIds) {
+
+            int ordinal = ordinalByBookId.get(bookId);
+
+            if (ordinal != LongIntHashMap.MISSING && (authorPrefix == null || authors[ordinal].startsWith(authorPrefix))) {
+                ordinals[size++] = ordinal;
+            }
+        }
+
+        Arrays.sort(ordinals, 0, size);
+
+        for (int from = 0; from < size; ) {
+
+            int to = from + 1;
+
+            while (to < size && ordinals[to] == ordinals[from]) {
+                to++;
+            }
+
+            top.offer(ordinals[from], to - from);
+            from = to;
+        }
+    }
+
+    /*
+     * Heap dos limit melhores (cabeca = o pior deles). Cada entrada e total << 32 | ordinal.
+     * */
+    private final class TopAuthors {
+
+        private final int limit;
+        private final Comparator<Long> worstFirst = Comparator.<Long>comparingInt(entry -> (int) (entry >>> 32))
+                .thenComparing(entry -> authors[(int) (long) entry], Comparator.<String>reverseOrder());
+        private final PriorityQueue<Long> heap;
+
+        TopAuthors(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.max(1, limit), worstFirst);
+        }
+
+        void offer(int ordinal, int count) {
+
+            if (count <= 0 || limit <= 0) {
+                return;
+            }
+
+            long entry = ((long) count << 32) | ordinal;
+
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (worstFirst.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<BookAuthorFacet> toList() {
+
+            List<Long> entries = new ArrayList<>(heap);
+            entries.sort(worstFirst.reversed());
+
+            List<BookAuthorFacet> facets = new ArrayList<>(entries.size());
+
+            for (long entry : entries) {
+                facets.add(new BookAuthorFacet(names[(int) entry], entry >>> 32));
+            }
+
+            return facets;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Totais usados pelo find para evitar o count(*):
+ *
+ * - total de livros (sem filtro): count(*) na carga + LongAdder atualizado a cada save/delete,
+ *   ressincronizado periodicamente para corrigir a deriva de escritas concorrentes com a carga
+ * - totais filtrados: cache do ultimo count de cada BookQuery, valido por estimate-ttl-ms
+ * */
+@Slf4j
+@Component
+public class BookCounter implements BookChangeListener {
+
+    private final BookRepository bookRepository;
+    private final LongAdder changes = new LongAdder();
+    private final Cache<BookQuery, Long> estimates;
+    private volatile long base;
+    private volatile boolean ready;
+
+    public BookCounter(BookRepository bookRepository,
+                       @Value("${library.book.count.estimate-ttl-ms:60000}") long estimateTtlMillis) {
+        this.bookRepository = bookRepository;
+        this.estimates = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(estimateTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        resync();
+    }
+
+    @Scheduled(
+            initialDelayString = "${library.book.count.resync-interval-ms:600000}",
+            fixedDelayString = "${library.book.count.resync-interval-ms:600000}"
+    )
+    public void resync() {
+
+        try {
+            long changesBeforeCount = changes.sum();
+
+            base = bookRepository.count() - changesBeforeCount;
+            ready = true;
+
+        } catch (RuntimeException ex) {
+            log.error("Book count resync failed", ex);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long total() {
+        return Math.max(0, base + changes.sum());
+    }
+
+    // null quando nao ha estimativa recente para a query
+    public Long estimate(BookQuery bookQuery) {
+        return estimates.getIfPresent(bookQuery);
+    }
+
+    public void putEstimate(BookQuery bookQuery, long count) {
+        estimates.put(bookQuery, count);
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        changes.increment();
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+        changes.decrement();
+    }
+}
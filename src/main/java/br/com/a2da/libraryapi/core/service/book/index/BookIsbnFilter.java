@@ -0,0 +1,159 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * Bloom filter dos ISBNs cadastrados, consultado antes do existsByIsbn:
+ * "definitivamente ausente" dispensa a ida ao banco. Exclusoes nao saem do filtro
+ * (so geram falsos positivos), por isso ele e reconstruido periodicamente.
+ * O indice unico uk_book_isbn continua sendo a garantia final.
+ * */
+@Slf4j
+@Component
+public class BookIsbnFilter implements BookChangeListener, MeterBinder {
+
+    private static final long MIN_EXPECTED_INSERTIONS = 10_000;
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double falsePositiveRate;
+
+    private final AtomicLong definitelyAbsent = new AtomicLong();
+    private final AtomicLong mightBePresent = new AtomicLong();
+    private volatile StringBloomFilter filter;
+    private volatile StringBloomFilter rebuilding;
+    private volatile boolean ready;
+
+    public BookIsbnFilter(BookRepository bookRepository,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${library.book.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = StringBloomFilter.create(MIN_EXPECTED_INSERTIONS, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        Thread loader = new Thread(this::rebuild, "book-isbn-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /*
+     * Ate a primeira carga terminar sempre responde true (o service consulta o banco).
+     * */
+    public boolean mightContain(String isbn) {
+
+        if (!ready || filter.mightContain(isbn)) {
+            mightBePresent.incrementAndGet();
+            return true;
+        }
+
+        definitelyAbsent.incrementAndGet();
+        return false;
+    }
+
+    @Scheduled(
+            initialDelayString = "${library.book.isbn-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${library.book.isbn-filter.rebuild-interval-ms:3600000}"
+    )
+    public synchronized void rebuild() {
+
+        long start = System.currentTimeMillis();
+
+        try {
+            StringBloomFilter next = StringBloomFilter.create(
+                    Math.max(MIN_EXPECTED_INSERTIONS, bookRepository.count() * 2),
+                    falsePositiveRate
+            );
+
+            // saves concorrentes com a leitura tambem vao para o filtro novo
+            rebuilding = next;
+
+            transactionTemplate.execute(status -> {
+                try (Stream<String> isbns = bookRepository.streamAllIsbns()) {
+                    isbns.forEach(next::put);
+                }
+                return null;
+            });
+
+            filter = next;
+            ready = true;
+
+            log.info("Book isbn filter rebuilt in {} ms ({} bytes)", System.currentTimeMillis() - start, next.memoryBytes());
+
+        } catch (RuntimeException ex) {
+            log.error("Book isbn filter rebuild failed, keeping the previous filter", ex);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        put(book.getIsbn());
+    }
+
+    @Override
+    public void bookUpdated(Book book) {
+        put(book.getIsbn());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("book.isbn.filter.false.positive.rate", this, isbnFilter -> isbnFilter.filter.expectedFalsePositiveRate())
+                .description("Taxa de falso positivo esperada do bloom filter de isbn")
+                .register(registry);
+
+        Gauge.builder("book.isbn.filter.memory", this, isbnFilter -> isbnFilter.filter.memoryBytes())
+                .description("Memoria usada pelos bits do bloom filter de isbn")
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("book.isbn.filter.checks", definitelyAbsent, AtomicLong::get)
+                .description("Verificacoes de isbn respondidas pelo filtro sem consulta ao banco")
+                .tag("result", "absent")
+                .register(registry);
+
+        FunctionCounter.builder("book.isbn.filter.checks", mightBePresent, AtomicLong::get)
+                .description("Verificacoes de isbn que ainda precisaram de consulta ao banco")
+                .tag("result", "maybe")
+                .register(registry);
+    }
+
+    private void put(String isbn) {
+
+        if (isbn == null) {
+            return;
+        }
+
+        // rebuilding antes de filter: a troca publica filter = next antes de limpar rebuilding
+        StringBloomFilter next = rebuilding;
+        StringBloomFilter current = filter;
+
+        current.put(isbn);
+
+        if (next != null && next != current) {
+            next.put(isbn);
+        }
+    }
+}
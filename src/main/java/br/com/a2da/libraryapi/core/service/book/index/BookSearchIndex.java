@@ -0,0 +1,508 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Indice invertido de trigramas sobre title e author (normalizados), usado pelo
+ * BookServiceImpl.find no lugar do "like '%y%'" do banco.
+ *
+ * - cada livro vira um documento int; as postings de cada trigrama sao listas int crescentes
+ * - trigrama -> posting e livro -> documento em LongIntHashMap (chaves long, sem boxing)
+ * - update = remove (marca o documento como apagado) + add em um documento novo
+ * - quando os documentos apagados chegam a 1/4 do total o indice e compactado: as postings
+ *   voltam a ter so documentos vivos
+ * - a ordenacao usa title/author como gravados (nao normalizados), a mesma chave do ORDER BY
+ *   do banco: a pagina nao muda de ordem conforme o caminho que respondeu
+ *
+ * Enquanto a carga inicial nao termina, search retorna null e o service usa o banco.
+ * Sem termos de busca tambem: a paginacao do banco ja resolve, sem ordenar o catalogo inteiro.
+ * */
+@Slf4j
+@Component
+public class BookSearchIndex implements BookChangeListener {
+
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int GRAM_SIZE = 3;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+    // compacta quando deletedCount * COMPACT_RATIO >= docCount
+    private static final int COMPACT_RATIO = 4;
+    private static final Set<String> SORTABLE_PROPERTIES = new HashSet<>(Arrays.asList("id", "title", "author"));
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // trigrama -> posicao em postings
+    private final LongIntHashMap postingByGram = new LongIntHashMap();
+    private final LongIntHashMap docByBookId = new LongIntHashMap();
+    // usado como conjunto de ids (valor 0)
+    private final LongIntHashMap deletedWhileLoading = new LongIntHashMap();
+    private final BitSet deletedDocs = new BitSet();
+    private IntPostingList[] postings = new IntPostingList[1024];
+    private int postingCount;
+    private long[] bookIds = new long[1024];
+    // normalizados (busca) e como gravados no banco (ordenacao e update parcial)
+    private String[] titles = new String[1024];
+    private String[] authors = new String[1024];
+    private String[] rawTitles = new String[1024];
+    private String[] rawAuthors = new String[1024];
+    private int docCount;
+    private int deletedCount;
+    private boolean loading;
+    private volatile boolean ready;
+
+    public BookSearchIndex(BookRepository bookRepository,
+                           @Value("${library.book.search.index.enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+
+        if (!enabled) {
+            return;
+        }
+
+        Thread loader = new Thread(this::load, "book-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public void load() {
+
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long lastId = Long.MIN_VALUE;
+            Slice<Book> slice;
+
+            do {
+                slice = bookRepository.findByIdGreaterThan(
+                        lastId,
+                        PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id"))
+                );
+
+                lock.writeLock().lock();
+                try {
+                    for (Book book : slice) {
+
+                        // alteracoes recebidas durante a carga sao mais novas que a leitura
+                        if (!docByBookId.containsKey(book.getId()) && !deletedWhileLoading.containsKey(book.getId())) {
+                            addDoc(book);
+                        }
+
+                        lastId = book.getId();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+            } while (slice.hasNext());
+
+            ready = true;
+
+            log.info("Book search index loaded: {} books in {} ms", size(), System.currentTimeMillis() - start);
+
+        } catch (RuntimeException ex) {
+            log.error("Book search index load failed, searches will keep using the database", ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                deletedWhileLoading.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+            return docByBookId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Ids dos livros cujo title/author casam com os termos da query conforme o BookMatchMode
+     * (ignorando caixa e acentos),
+     * ja ordenados conforme o sort. Retorna null quando o indice nao pode responder
+     * (desabilitado, carregando, ou sort por propriedade nao indexada) ou quando a query
+     * nao tem termos.
+     * */
+    public long[] search(BookQuery bookQuery, Sort sort) {
+
+        if (!enabled || !ready || !isSortSupported(sort)) {
+            return null;
+        }
+
+        String title = emptyToNull(BookTextNormalizer.normalize(bookQuery.getTitle()));
+        String author = emptyToNull(BookTextNormalizer.normalize(bookQuery.getAuthor()));
+
+        if (title == null && author == null) {
+            return null;
+        }
+        BookMatchMode match = BookMatchMode.orDefault(bookQuery.getMatch());
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = intersect(intersect(null, TITLE, title), AUTHOR, author);
+            IntPostingList matches = new IntPostingList();
+
+            int candidateCount = candidates == null ? docCount : candidates.length;
+
+            for (int i = 0; i < candidateCount; i++) {
+
+                int doc = candidates == null ? i : candidates[i];
+
+                if (!deletedDocs.get(doc)
+                        && matches(match, titles[doc], title)
+                        && matches(match, authors[doc], author)) {
+                    matches.add(doc);
+                }
+            }
+
+            return sortedBookIds(matches.toArray(), sort);
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        index(book);
+    }
+
+    // Book parcial (PATCH): title/author nulos mantem o valor indexado
+    @Override
+    public void bookUpdated(Book book) {
+        index(book);
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDoc(id);
+
+            if (loading) {
+                deletedWhileLoading.put(id, 0);
+            }
+
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Book book) {
+
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int doc = docByBookId.get(book.getId());
+
+            if (doc != LongIntHashMap.MISSING && (book.getTitle() == null || book.getAuthor() == null)) {
+                book = Book.builder()
+                        .id(book.getId())
+                        .title(book.getTitle() != null ? book.getTitle() : rawTitles[doc])
+                        .author(book.getAuthor() != null ? book.getAuthor() : rawAuthors[doc])
+                        .build();
+            }
+
+            removeDoc(book.getId());
+            addDoc(book);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addDoc(Book book) {
+
+        if (docCount == bookIds.length) {
+            int capacity = docCount * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            rawTitles = Arrays.copyOf(rawTitles, capacity);
+            rawAuthors = Arrays.copyOf(rawAuthors, capacity);
+        }
+
+        int doc = docCount++;
+
+        bookIds[doc] = book.getId();
+        rawTitles[doc] = book.getTitle();
+        rawAuthors[doc] = book.getAuthor();
+        titles[doc] = BookTextNormalizer.normalize(book.getTitle());
+        authors[doc] = BookTextNormalizer.normalize(book.getAuthor());
+        docByBookId.put(book.getId(), doc);
+
+        addGrams(TITLE, titles[doc], doc);
+        addGrams(AUTHOR, authors[doc], doc);
+    }
+
+    private void removeDoc(Long bookId) {
+
+        int doc = docByBookId.remove(bookId);
+
+        if (doc != LongIntHashMap.MISSING) {
+            deletedDocs.set(doc);
+            titles[doc] = null;
+            authors[doc] = null;
+            rawTitles[doc] = null;
+            rawAuthors[doc] = null;
+            deletedCount++;
+        }
+    }
+
+    private void addGrams(int field, String text, int doc) {
+
+        if (text == null || text.length() < GRAM_SIZE) {
+            return;
+        }
+
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+
+            IntPostingList list = postingOf(gram(field, text, i));
+
+            // doc e o maior documento: trigrama repetido no mesmo texto ja esta no fim da lista
+            if (list.isEmpty() || list.last() != doc) {
+                list.add(doc);
+            }
+        }
+    }
+
+    private IntPostingList postingOf(long gram) {
+
+        int posting = postingByGram.get(gram);
+
+        if (posting != LongIntHashMap.MISSING) {
+            return postings[posting];
+        }
+
+        if (postingCount == postings.length) {
+            postings = Arrays.copyOf(postings, postingCount * 2);
+        }
+
+        IntPostingList list = new IntPostingList();
+        postings[postingCount] = list;
+        postingByGram.put(gram, postingCount++);
+
+        return list;
+    }
+
+    private void compactIfNeeded() {
+
+        if (deletedCount < MIN_DELETED_TO_COMPACT || (long) deletedCount * COMPACT_RATIO < docCount) {
+            return;
+        }
+
+        long[] oldBookIds = bookIds;
+        String[] oldTitles = rawTitles;
+        String[] oldAuthors = rawAuthors;
+        BitSet oldDeletedDocs = (BitSet) deletedDocs.clone();
+        int oldDocCount = docCount;
+
+        postingByGram.clear();
+        postings = new IntPostingList[1024];
+        postingCount = 0;
+        docByBookId.clear();
+        deletedDocs.clear();
+        bookIds = new long[Math.max(1024, oldDocCount - deletedCount)];
+        titles = new String[bookIds.length];
+        authors = new String[bookIds.length];
+        rawTitles = new String[bookIds.length];
+        rawAuthors = new String[bookIds.length];
+        docCount = 0;
+        deletedCount = 0;
+
+        for (int doc = 0; doc < oldDocCount; doc++) {
+
+            if (!oldDeletedDocs.get(doc)) {
+                addDoc(Book.builder()
+                        .id(oldBookIds[doc])
+                        .title(oldTitles[doc])
+                        .author(oldAuthors[doc])
+                        .build());
+            }
+        }
+    }
+
+    private int[] intersect(int[] candidates, int field, String text) {
+
+        if (text == null || text.length() < GRAM_SIZE) {
+            return candidates;
+        }
+
+        List<IntPostingList> lists = new ArrayList<>();
+
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+
+            int posting = postingByGram.get(gram(field, text, i));
+
+            if (posting == LongIntHashMap.MISSING) {
+                return new int[0];
+            }
+
+            lists.add(postings[posting]);
+        }
+
+        lists.sort(Comparator.comparingInt(IntPostingList::size));
+
+        int[] result = candidates;
+
+        for (IntPostingList list : lists) {
+
+            result = result == null ? list.toArray() : IntPostingList.intersect(result, list);
+
+            if (result.length == 0) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    private long[] sortedBookIds(int[] docs, Sort sort) {
+
+        Iterator<Sort.Order> orders = sort.iterator();
+        Sort.Order first = orders.hasNext() ? orders.next() : null;
+
+        if (first == null || ("id".equals(first.getProperty()) && !orders.hasNext())) {
+
+            long[] ids = new long[docs.length];
+
+            for (int i = 0; i < docs.length; i++) {
+                ids[i] = bookIds[docs[i]];
+            }
+
+            Arrays.sort(ids);
+
+            if (first != null && first.isDescending()) {
+                reverse(ids);
+            }
+
+            return ids;
+        }
+
+        Integer[] boxedDocs = new Integer[docs.length];
+
+        for (int i = 0; i < docs.length; i++) {
+            boxedDocs[i] = docs[i];
+        }
+
+        Arrays.sort(boxedDocs, comparator(sort));
+
+        long[] ids = new long[boxedDocs.length];
+
+        for (int i = 0; i < boxedDocs.length; i++) {
+            ids[i] = bookIds[boxedDocs[i]];
+        }
+
+        return ids;
+    }
+
+    private Comparator<Integer> comparator(Sort sort) {
+
+        Comparator<Integer> comparator = null;
+
+        for (Sort.Order order : sort) {
+
+            Comparator<Integer> next;
+
+            if ("id".equals(order.getProperty())) {
+                next = Comparator.comparingLong(doc -> bookIds[doc]);
+            } else {
+                String[] values = "title".equals(order.getProperty()) ? rawTitles : rawAuthors;
+                next = Comparator.comparing(doc -> values[doc], Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+            }
+
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+
+        return comparator.thenComparingLong(doc -> bookIds[doc]);
+    }
+
+    private static boolean isSortSupported(Sort sort) {
+
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static boolean matches(BookMatchMode match, String value, String term) {
+        return term == null || (value != null && match.matches(value, term));
+    }
+
+    private static long gram(int field, String text, int start) {
+        return ((long) field << 48)
+                | ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    private static void reverse(long[] values) {
+
+        for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+            long tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
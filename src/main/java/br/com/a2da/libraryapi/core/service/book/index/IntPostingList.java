@@ -0,0 +1,60 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import java.util.Arrays;
+
+/*
+ * Lista de documentos (int) em ordem crescente, sem boxing.
+ * */
+final class IntPostingList {
+
+    private int[] docs = new int[4];
+    private int size;
+
+    void add(int doc) {
+
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+        }
+
+        docs[size++] = doc;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int last() {
+        return docs[size - 1];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+
+    static int[] intersect(int[] sortedDocs, IntPostingList other) {
+
+        int[] result = new int[Math.min(sortedDocs.length, other.size)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < sortedDocs.length && j < other.size) {
+
+            if (sortedDocs[i] == other.docs[j]) {
+                result[count++] = sortedDocs[i];
+                i++;
+                j++;
+            } else if (sortedDocs[i] < other.docs[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+}
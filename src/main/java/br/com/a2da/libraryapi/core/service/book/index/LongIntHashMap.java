@@ -0,0 +1,144 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import java.util.Arrays;
+
+/*
+ * Mapa long -> int (valores >= 0) com enderecamento aberto e sondagem linear, sem boxing.
+ * Nao e thread-safe: quem usa controla o acesso.
+ * */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private int[] values = newValues(MIN_CAPACITY);
+    private int size;
+
+    int get(long key) {
+
+        int slot = slot(key);
+
+        return slot < 0 ? MISSING : values[slot];
+    }
+
+    boolean containsKey(long key) {
+        return slot(key) >= 0;
+    }
+
+    // retorna o valor anterior, ou MISSING
+    int put(long key, int value) {
+
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be >= 0");
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+
+            if (values[i] == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return MISSING;
+            }
+
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+    }
+
+    // retorna o valor removido, ou MISSING
+    int remove(long key) {
+
+        int slot = slot(key);
+
+        if (slot < 0) {
+            return MISSING;
+        }
+
+        int removed = values[slot];
+        int mask = keys.length - 1;
+        int hole = slot;
+
+        // puxa para o buraco as chaves seguintes cuja posicao ideal fica antes dele
+        for (int i = (hole + 1) & mask; values[i] != MISSING; i = (i + 1) & mask) {
+
+            int ideal = index(keys[i], mask);
+
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+
+        values[hole] = MISSING;
+        size--;
+
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = new long[MIN_CAPACITY];
+        values = newValues(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+
+        int mask = keys.length - 1;
+
+        for (int i = index(key, mask); values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void resize(int capacity) {
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = newValues(capacity);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int index(long key, int mask) {
+
+        long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int[] newValues(int capacity) {
+
+        int[] values = new int[capacity];
+        Arrays.fill(values, MISSING);
+
+        return values;
+    }
+}
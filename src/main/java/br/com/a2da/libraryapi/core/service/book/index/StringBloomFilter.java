@@ -0,0 +1,125 @@
+package br.com.a2da.libraryapi.core.service.book.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter de strings: mightContain == false garante que o valor nunca foi inserido.
+ * Seguro para uso concorrente (bits em AtomicLongArray).
+ * */
+public class StringBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+
+    private StringBloomFilter(long numBits, int numHashes) {
+        this.words = new AtomicLongArray((int) ((numBits + 63) / 64));
+        this.numBits = this.words.length() * 64L;
+        this.numHashes = numHashes;
+    }
+
+    public static StringBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+
+        long n = Math.max(1, expectedInsertions);
+        long numBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+
+        return new StringBloomFilter(numBits, numHashes);
+    }
+
+    public void put(String value) {
+
+        long combinedHash = hash(value);
+        long step = step(combinedHash);
+
+        for (int i = 1; i <= numHashes; i++) {
+            combinedHash += step;
+            setBit(index(combinedHash));
+        }
+    }
+
+    public boolean mightContain(String value) {
+
+        long combinedHash = hash(value);
+        long step = step(combinedHash);
+
+        for (int i = 1; i <= numHashes; i++) {
+            combinedHash += step;
+
+            if (!getBit(index(combinedHash))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Taxa de falso positivo esperada para o preenchimento atual: (bits ligados / bits) ^ hashes
+     * */
+    public double expectedFalsePositiveRate() {
+
+        long bitsSet = 0;
+
+        for (int i = 0; i < words.length(); i++) {
+            bitsSet += Long.bitCount(words.get(i));
+        }
+
+        return Math.pow((double) bitsSet / numBits, numHashes);
+    }
+
+    public long memoryBytes() {
+        return words.length() * 8L;
+    }
+
+    /*
+     * h1 + i * h2 (Kirsch-Mitzenmacher) em 64 bits: com int so ~2^31 posicoes seriam
+     * alcancaveis e filtros maiores teriam bits que nunca sao usados.
+     * */
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % numBits;
+    }
+
+    // h2: o hash com as metades trocadas, para as duas metades variarem em todos os bits
+    private static long step(long hash) {
+        return Long.rotateLeft(hash, 32);
+    }
+
+    private void setBit(long bit) {
+
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+
+        do {
+            current = words.get(word);
+
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    private boolean getBit(long bit) {
+        return (words.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    // FNV-1a 64 bits seguido do finalizador do murmur3 para espalhar os bits
+    private static long hash(String value) {
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
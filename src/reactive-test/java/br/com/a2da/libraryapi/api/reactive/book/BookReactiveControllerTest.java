@@ -0,0 +1,164 @@
+package br.com.a2da.libraryapi.api.reactive.book;
+
+import br.com.a2da.libraryapi.api.controller.book.BookDTO;
+import br.com.a2da.libraryapi.api.controller.book.BookForm;
+import br.com.a2da.libraryapi.api.controller.book.BookMarshallerService;
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.reactive.ReactiveBookService;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@WebFluxTest(controllers = BookReactiveController.class)
+public class BookReactiveControllerTest {
+
+    static String BOOK_API = "/api/books";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    ReactiveBookService reactiveBookServiceMocked;
+
+    @MockBean
+    BookMarshallerService bookMarshallerServiceMocked;
+
+    final Book bookFromBookFormMocked = mock(Book.class);
+    final Book bookWithIdMocked = mock(Book.class);
+
+    @AfterEach
+    public void afterEachTest() {
+
+        verifyNoMoreInteractions(reactiveBookServiceMocked);
+        verifyNoMoreInteractions(bookMarshallerServiceMocked);
+    }
+
+    @Test
+    @DisplayName("Deve criar um livro com sucesso")
+    public void createBookTest() {
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookSave(Mockito.any(BookForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(reactiveBookServiceMocked.save(bookFromBookFormMocked))
+                .willReturn(Mono.just(bookWithIdMocked));
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(BookDTO.builder().id(BookHelperTest.ID).build());
+
+        // When execute request / Then validate response
+        webTestClient.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }})
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isEqualTo(BookHelperTest.ID);
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1)).bindToBookSave(Mockito.any(BookForm.class));
+        verify(reactiveBookServiceMocked, times(1)).save(bookFromBookFormMocked);
+        verify(bookMarshallerServiceMocked, times(1)).bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve retornar ApiErrors quando o livro e invalido")
+    public void createInvalidBookTest() {
+
+        webTestClient.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Collections.emptyMap())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Deve retornar ApiErrors quando o isbn ja esta cadastrado")
+    public void createBookWithDuplicatedIsbnTest() {
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookSave(Mockito.any(BookForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(reactiveBookServiceMocked.save(bookFromBookFormMocked))
+                .willReturn(Mono.error(new BusinessException("Isbn ja cadastrado")));
+
+        // When execute request / Then validate response
+        webTestClient.post()
+                .uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }})
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Isbn ja cadastrado");
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1)).bindToBookSave(Mockito.any(BookForm.class));
+        verify(reactiveBookServiceMocked, times(1)).save(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 quando o livro nao existe")
+    public void findBookNotFoundTest() {
+
+        // Expected that call
+        given(reactiveBookServiceMocked.findById(BookHelperTest.ID_NOT_FOUND)).willReturn(Mono.empty());
+
+        // When execute request / Then validate response
+        webTestClient.get()
+                .uri(BOOK_API + "/" + BookHelperTest.ID_NOT_FOUND)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        // And verify mocks interaction
+        verify(reactiveBookServiceMocked, times(1)).findById(BookHelperTest.ID_NOT_FOUND);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 ao apagar livro inexistente")
+    public void deleteBookNotFoundTest() {
+
+        // Expected that call
+        given(reactiveBookServiceMocked.deleteById(BookHelperTest.ID_NOT_FOUND)).willReturn(Mono.just(false));
+
+        // When execute request / Then validate response
+        webTestClient.delete()
+                .uri(BOOK_API + "/" + BookHelperTest.ID_NOT_FOUND)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        // And verify mocks interaction
+        verify(reactiveBookServiceMocked, times(1)).deleteById(BookHelperTest.ID_NOT_FOUND);
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.a2da.libraryapi.api.reactive.book;
+
+import br.com.a2da.libraryapi.api.controller.book.BookDTO;
+import br.com.a2da.libraryapi.api.controller.book.BookForm;
+import br.com.a2da.libraryapi.api.controller.book.BookMarshallerService;
+import br.com.a2da.libraryapi.api.controller.book.BookQueryForm;
+import br.com.a2da.libraryapi.api.exception.ApiErrors;
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.reactive.ReactiveBookService;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/*
+ * Mesmos endpoints e contrato de erros (ApiErrors) do BookController, sem bloquear a thread
+ * do servidor. Ativo apenas no profile "reactive".
+ * */
+@Profile("reactive")
+@RestController
+@RequestMapping("/api/books")
+public class BookReactiveController {
+
+    private ReactiveBookService reactiveBookService;
+    private BookMarshallerService bookMarshallerService;
+
+    public BookReactiveController(ReactiveBookService reactiveBookService,
+                                  BookMarshallerService bookMarshallerService) {
+        this.reactiveBookService = reactiveBookService;
+        this.bookMarshallerService = bookMarshallerService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> save(@RequestBody @Valid BookForm bookForm) {
+
+        return reactiveBookService.save(bookMarshallerService.bindToBookSave(bookForm))
+                .map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance));
+    }
+
+    @GetMapping("{id}")
+    public Mono<BookDTO> show(@PathVariable Long id) {
+
+        return reactiveBookService.findById(id)
+                .map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @GetMapping
+    public Mono<Page<BookDTO>> find(BookQueryForm bookQueryForm, Pageable pageRequest) {
+
+        BookQuery bookQuery;
+
+        try {
+            bookQuery = bookMarshallerService.bindBookQueryFormToBookQuery(bookQueryForm);
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage()));
+        }
+
+        return reactiveBookService.find(
+                bookQuery,
+                pageRequest
+        ).map(page -> page.map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance)));
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable Long id) {
+
+        return reactiveBookService.deleteById(id)
+                .flatMap(deleted -> deleted
+                        ? Mono.<Void>empty()
+                        : Mono.<Void>error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @PutMapping("{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookForm bookForm) {
+
+        return reactiveBookService.findById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(bookInstance -> reactiveBookService.update(
+                        bookMarshallerService.bindToBookUpdate(bookForm, bookInstance)
+                ))
+                .map(bookInstance -> bookMarshallerService.bindToBookDTO(bookInstance));
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors handleValidationException(WebExchangeBindException ex) {
+        return new ApiErrors(ex.getBindingResult());
+    }
+
+    @ExceptionHandler(BusinessException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors handleBusinessException(BusinessException ex) {
+        return new ApiErrors(ex);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiErrors handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return new ApiErrors(new BusinessException("Livro alterado por outra requisicao"));
+    }
+}
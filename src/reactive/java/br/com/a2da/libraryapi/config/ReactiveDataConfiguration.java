@@ -0,0 +1,28 @@
+package br.com.a2da.libraryapi.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+@Profile("reactive")
+@Configuration
+@EnableR2dbcRepositories(basePackages = "br.com.a2da.libraryapi.core.reactive")
+public class ReactiveDataConfiguration extends AbstractR2dbcConfiguration {
+
+    private final String url;
+
+    public ReactiveDataConfiguration(@Value("${library.reactive.r2dbc.url}") String url) {
+        this.url = url;
+    }
+
+    @Bean
+    @Override
+    public ConnectionFactory connectionFactory() {
+        return ConnectionFactories.get(url);
+    }
+}
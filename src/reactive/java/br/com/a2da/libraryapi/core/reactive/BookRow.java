@@ -0,0 +1,59 @@
+package br.com.a2da.libraryapi.core.reactive;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/*
+ * Mapeamento R2DBC da mesma tabela do Book (schema criado pelo JPA).
+ * */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("book")
+public class BookRow {
+
+    @Id
+    private Long id;
+
+    private String title;
+
+    private String author;
+
+    private String isbn;
+
+    private Long version;
+
+    // mantidas aqui porque o insert R2DBC nao passa pelo @PrePersist do Book
+    private String titleNormalized;
+
+    private String authorNormalized;
+
+    public static BookRow of(Book book) {
+        return BookRow.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .version(book.getVersion())
+                .titleNormalized(BookTextNormalizer.normalize(book.getTitle()))
+                .authorNormalized(BookTextNormalizer.normalize(book.getAuthor()))
+                .build();
+    }
+
+    public Book toBook() {
+        return Book.builder()
+                .id(id)
+                .title(title)
+                .author(author)
+                .isbn(isbn)
+                .version(version)
+                .build();
+    }
+}
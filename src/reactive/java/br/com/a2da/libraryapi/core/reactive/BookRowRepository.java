@@ -0,0 +1,18 @@
+package br.com.a2da.libraryapi.core.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface BookRowRepository extends ReactiveCrudRepository<BookRow, Long> {
+
+    @Query("select count(*) from book where isbn = :isbn")
+    Mono<Long> countByIsbn(String isbn);
+
+    /*
+     * Mesma sequence do JPA (allocationSize 50, otimizador pooled): cada valor lido aqui
+     * fica fora dos blocos que o Hibernate reserva, entao pode ser usado como id direto.
+     * */
+    @Query("select next value for book_seq")
+    Mono<Long> nextId();
+}
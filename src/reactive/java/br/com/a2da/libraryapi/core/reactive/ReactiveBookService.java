@@ -0,0 +1,24 @@
+package br.com.a2da.libraryapi.core.reactive;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+/*
+ * Contraparte nao bloqueante do BookService, usada pelo BookReactiveController no profile "reactive".
+ * */
+public interface ReactiveBookService {
+
+    Mono<Book> save(Book book);
+
+    Mono<Book> findById(Long id);
+
+    // true quando o livro existia e foi apagado
+    Mono<Boolean> deleteById(Long id);
+
+    Mono<Book> update(Book book);
+
+    Mono<Page<Book>> find(BookQuery filter, Pageable pageRequest);
+}
@@ -0,0 +1,206 @@
+package br.com.a2da.libraryapi.core.reactive;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.model.BookTextNormalizer;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+/*
+ * Mesmas regras do BookServiceImpl sobre R2DBC. As escritas tambem avisam os
+ * BookChangeListener (indice de busca, filtro de ISBN) e limpam o cache de findById,
+ * para os dois stacks enxergarem os mesmos dados.
+ * */
+@Profile("reactive")
+@Service
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private static final Set<String> SORTABLE_PROPERTIES = new HashSet<>(Arrays.asList("id", "title", "author", "isbn"));
+
+    private BookRowRepository bookRowRepository;
+    private DatabaseClient databaseClient;
+    private CacheManager cacheManager;
+    private List<BookChangeListener> bookChangeListeners;
+
+    public ReactiveBookServiceImpl(BookRowRepository bookRowRepository,
+                                   DatabaseClient databaseClient,
+                                   CacheManager cacheManager,
+                                   List<BookChangeListener> bookChangeListeners) {
+        this.bookRowRepository = bookRowRepository;
+        this.databaseClient = databaseClient;
+        this.cacheManager = cacheManager;
+        this.bookChangeListeners = bookChangeListeners;
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+
+        return bookRowRepository.countByIsbn(book.getIsbn())
+                .flatMap(count -> count > 0
+                        ? Mono.<Long>error(new BusinessException("Isbn ja cadastrado"))
+                        : bookRowRepository.nextId())
+                .flatMap(id -> {
+
+                    BookRow bookRow = BookRow.of(book);
+                    bookRow.setId(id);
+                    bookRow.setVersion(0L);
+
+                    return databaseClient.insert()
+                            .into(BookRow.class)
+                            .using(bookRow)
+                            .then()
+                            .thenReturn(bookRow.toBook());
+                })
+                // outra requisicao gravou o mesmo isbn depois da verificacao
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new BusinessException("Isbn ja cadastrado"))
+                .doOnNext(bookSaved -> bookChangeListeners.forEach(listener -> listener.bookSaved(bookSaved)));
+    }
+
+    @Override
+    public Mono<Book> findById(Long id) {
+        return bookRowRepository.findById(id).map(BookRow::toBook);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+
+        return databaseClient.execute("delete from book where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0)
+                .doOnNext(deleted -> {
+                    if (deleted) {
+                        evict(id);
+                        bookChangeListeners.forEach(listener -> listener.bookDeleted(id));
+                    }
+                });
+    }
+
+    /*
+     * Controle otimista pela coluna version, como o @Version do JPA.
+     * */
+    @Override
+    public Mono<Book> update(Book book) {
+
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id cant be null"));
+        }
+
+        return databaseClient.execute("update book set title = :title, author = :author, isbn = :isbn,"
+                + " title_normalized = :titleNormalized, author_normalized = :authorNormalized, version = version + 1"
+                + " where id = :id and version = :version")
+                .bind("title", book.getTitle())
+                .bind("author", book.getAuthor())
+                .bind("titleNormalized", BookTextNormalizer.normalize(book.getTitle()))
+                .bind("authorNormalized", BookTextNormalizer.normalize(book.getAuthor()))
+                .bind("isbn", book.getIsbn())
+                .bind("id", book.getId())
+                .bind("version", book.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new BusinessException("Isbn ja cadastrado"))
+                .flatMap(rows -> rows == 0
+                        ? Mono.<Book>error(new OptimisticLockingFailureException("Book " + book.getId() + " was changed"))
+                        : Mono.just(Book.builder()
+                                .id(book.getId())
+                                .title(book.getTitle())
+                                .author(book.getAuthor())
+                                .isbn(book.getIsbn())
+                                .version(book.getVersion() + 1)
+                                .build()))
+                .doOnNext(bookUpdated -> {
+                    evict(bookUpdated.getId());
+                    bookChangeListeners.forEach(listener -> listener.bookUpdated(bookUpdated));
+                });
+    }
+
+    @Override
+    public Mono<Page<Book>> find(BookQuery bookQuery, Pageable pageRequest) {
+
+        StringBuilder where = new StringBuilder(" where 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+
+        BookMatchMode match = BookMatchMode.orDefault(bookQuery.getMatch());
+
+        if (bookQuery.getTitle() != null) {
+            where.append(" and title_normalized like :title");
+            parameters.put("title", match.toLikePattern(BookTextNormalizer.normalize(bookQuery.getTitle())));
+        }
+
+        if (bookQuery.getAuthor() != null) {
+            where.append(" and author_normalized like :author");
+            parameters.put("author", match.toLikePattern(BookTextNormalizer.normalize(bookQuery.getAuthor())));
+        }
+
+        DatabaseClient.GenericExecuteSpec select = databaseClient.execute(
+                "select * from book" + where + orderBy(pageRequest.getSort()) + " limit :limit offset :offset"
+        );
+        DatabaseClient.GenericExecuteSpec count = databaseClient.execute("select count(*) from book" + where);
+
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            select = select.bind(parameter.getKey(), parameter.getValue());
+            count = count.bind(parameter.getKey(), parameter.getValue());
+        }
+
+        Mono<List<Book>> content = select
+                .bind("limit", pageRequest.getPageSize())
+                .bind("offset", pageRequest.getOffset())
+                .as(BookRow.class)
+                .fetch()
+                .all()
+                .map(BookRow::toBook)
+                .collectList();
+
+        Mono<Long> total = count
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+
+        return Mono.zip(content, total)
+                .<Page<Book>>map(result -> new PageImpl<>(result.getT1(), pageRequest, result.getT2()));
+    }
+
+    // so propriedades conhecidas entram no SQL; id desempata a ordenacao
+    private static String orderBy(Sort sort) {
+
+        StringBuilder orderBy = new StringBuilder(" order by ");
+
+        for (Sort.Order order : sort) {
+
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new BusinessException("Ordenacao invalida: " + order.getProperty());
+            }
+
+            orderBy.append(order.getProperty())
+                    .append(order.isDescending() ? " desc" : " asc")
+                    .append(", ");
+        }
+
+        return orderBy.append("id asc").toString();
+    }
+
+    private void evict(Long id) {
+
+        Cache cache = cacheManager.getCache(BookService.BOOK_CACHE);
+
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+}
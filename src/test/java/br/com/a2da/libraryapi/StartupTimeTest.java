@@ -0,0 +1,158 @@
+package br.com.a2da.libraryapi;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * Tempo da subida no profile "startup" ate o primeiro GET /api/books com 200: o que uma
+ * instancia nova do autoscaling leva para receber trafego.
+ *
+ * Cada medicao sobe a aplicacao em uma JVM nova (sem classes carregadas nem JIT quente),
+ * com o jar simples e as dependencias do treino do AppCDS, com e sem o arquivo gerado.
+ * Depende do empacotamento, entao so roda no profile Maven startup (@Tag("startup")), na
+ * fase verify: mvn -P startup verify -Dstartup.max-millis=...
+ * O log de cada JVM fica em startup.directory/startup-<cds|no-cds>.log.
+ * */
+@Slf4j
+@Tag("startup")
+public class StartupTimeTest {
+
+    private static final long FIRST_REQUEST_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final long maxMillis = Long.getLong("startup.max-millis", 20_000L);
+    private final Path jar = Paths.get(System.getProperty("startup.jar", "target/library-api.jar"));
+    private final Path directory = Paths.get(System.getProperty("startup.directory", "target/appcds"));
+
+    @Test
+    @DisplayName("Deve responder o primeiro GET /api/books dentro do limite em uma JVM nova sem AppCDS")
+    public void timeToFirstRequestTest() throws Exception {
+
+        // Given the packaged jar and its dependencies
+        assumeTrue(Files.exists(jar) && Files.exists(directory.resolve("classpath.txt")), "run with mvn -P startup verify");
+
+        // When a fresh JVM starts without the CDS archive
+        long firstRequestMillis = timeToFirstRequest("no-cds");
+
+        // Then
+        assertThat(firstRequestMillis).isLessThanOrEqualTo(maxMillis);
+    }
+
+    @Test
+    @DisplayName("Deve responder o primeiro GET /api/books dentro do limite em uma JVM nova com AppCDS")
+    public void timeToFirstRequestWithAppCdsTest() throws Exception {
+
+        // Given the packaged jar, its dependencies and the archive of the training run
+        Path archive = directory.resolve("library-api.jsa");
+        assumeTrue(Files.exists(jar) && Files.exists(archive), "run with mvn -P startup verify");
+
+        // When a fresh JVM starts with the CDS archive
+        long firstRequestMillis = timeToFirstRequest("cds", "-Xshare:auto", "-XX:SharedArchiveFile=" + archive);
+
+        // Then
+        assertThat(firstRequestMillis).isLessThanOrEqualTo(maxMillis);
+    }
+
+    private long timeToFirstRequest(String name, String... jvmOptions) throws IOException, InterruptedException {
+
+        int port = freePort();
+
+        // o mesmo classpath do treino: o CDS recusa o arquivo quando ele muda
+        String dependencies = new String(Files.readAllBytes(directory.resolve("classpath.txt")), StandardCharsets.UTF_8).trim();
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+        for (String jvmOption : jvmOptions) {
+            command.add(jvmOption);
+        }
+
+        command.add("-cp");
+        command.add(jar + File.pathSeparator + dependencies);
+        command.add(LibraryApiApplication.class.getName());
+        command.add("--spring.profiles.active=startup");
+        command.add("--server.port=" + port);
+
+        File logFile = directory.resolve("startup-" + name + ".log").toFile();
+
+        long start = System.nanoTime();
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+
+        try {
+            waitForFirstRequest(process, port);
+
+            long firstRequestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            log.info("Startup profile ({}): first GET /api/books={} ms (max {} ms)", name, firstRequestMillis, maxMillis);
+
+            return firstRequestMillis;
+
+        } finally {
+            process.destroy();
+
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private void waitForFirstRequest(Process process, int port) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + FIRST_REQUEST_TIMEOUT_MILLIS;
+
+        while (status(port) != 200) {
+
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + process.exitValue() + " before the first request");
+            }
+
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("GET /api/books did not succeed in " + FIRST_REQUEST_TIMEOUT_MILLIS + " ms");
+            }
+
+            Thread.sleep(5);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static int status(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/books").openConnection();
+
+            try {
+                return connection.getResponseCode();
+            } finally {
+                connection.disconnect();
+            }
+
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+}
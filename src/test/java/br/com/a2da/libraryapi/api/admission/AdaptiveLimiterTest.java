@@ -0,0 +1,131 @@
+package br.com.a2da.libraryapi.api.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class AdaptiveLimiterTest {
+
+    @Test
+    @DisplayName("Deve rejeitar na hora quando o limite esta ocupado e nao ha fila")
+    public void rejectWithoutQueueTest() {
+
+        // Given
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 2, 2, 0);
+
+        // When
+        AdaptiveLimiter.Permit first = limiter.tryAcquire(0);
+        AdaptiveLimiter.Permit second = limiter.tryAcquire(0);
+        AdaptiveLimiter.Permit third = limiter.tryAcquire(TimeUnit.SECONDS.toNanos(1));
+
+        // Then
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(third).isNull();
+        assertThat(limiter.getInflight()).isEqualTo(2);
+        assertThat(limiter.getAdmitted()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+        assertThat(limiter.getQueued()).isZero();
+
+        // And a released permit frees the slot only once
+        first.release(false);
+        first.release(false);
+
+        assertThat(limiter.getInflight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire(0)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve admitir quem esta na fila quando uma vaga e liberada")
+    public void queueUntilReleaseTest() throws Exception {
+
+        // Given
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1);
+        AdaptiveLimiter.Permit holder = limiter.tryAcquire(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<AdaptiveLimiter.Permit> waiting = executor.submit(() -> limiter.tryAcquire(TimeUnit.SECONDS.toNanos(5)));
+
+            while (!limiter.isQueueing()) {
+                Thread.sleep(1);
+            }
+
+            // When the queue is full another request is rejected immediately
+            assertThat(limiter.tryAcquire(TimeUnit.SECONDS.toNanos(5))).isNull();
+
+            holder.release(false);
+
+            // Then
+            assertThat(waiting.get(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(limiter.getQueued()).isEqualTo(1);
+            assertThat(limiter.getAdmitted()).isEqualTo(2);
+            assertThat(limiter.getRejected()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar quem esperou na fila alem do tempo maximo")
+    public void queueTimeoutTest() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 10);
+
+        limiter.tryAcquire(0);
+
+        assertThat(limiter.tryAcquire(TimeUnit.MILLISECONDS.toNanos(10))).isNull();
+        assertThat(limiter.getQueued()).isEqualTo(1);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+        assertThat(limiter.isQueueing()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve reduzir o limite quando a latencia sobe sob carga")
+    public void decreaseLimitOnLatencyTest() throws Exception {
+
+        // Given a limiter calibrated with fast responses
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 100, 0);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 0);
+        }
+
+        int calibrated = limiter.getLimit();
+
+        // When responses get much slower with every slot taken
+        for (int i = 0; i < 10; i++) {
+            saturate(limiter, 20);
+        }
+
+        // Then
+        assertThat(calibrated).isGreaterThan(20);
+        assertThat(limiter.getLimit()).isLessThan(calibrated);
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(2);
+    }
+
+    // ocupa todas as vagas, espera e libera todas com amostra de latencia
+    private static void saturate(AdaptiveLimiter limiter, long sleepMillis) throws InterruptedException {
+
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveLimiter.Permit permit;
+
+        while ((permit = limiter.tryAcquire(0)) != null) {
+            permits.add(permit);
+        }
+
+        Thread.sleep(sleepMillis);
+
+        permits.forEach(p -> p.release(true));
+    }
+}
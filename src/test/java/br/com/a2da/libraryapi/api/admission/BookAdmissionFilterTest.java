@@ -0,0 +1,172 @@
+package br.com.a2da.libraryapi.api.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookAdmissionFilterTest {
+
+    private static final String BOOK_API = "/api/books";
+
+    @Test
+    @DisplayName("Deve classificar os endpoints de livros por grupo")
+    public void endpointGroupTest() {
+
+        assertThat(BookEndpointGroup.of("GET", BOOK_API + "/1", null)).isEqualTo(BookEndpointGroup.LOOKUP);
+        assertThat(BookEndpointGroup.of("GET", BOOK_API, "ids=1,2")).isEqualTo(BookEndpointGroup.LOOKUP);
+        assertThat(BookEndpointGroup.of("POST", BOOK_API + "/lookup", null)).isEqualTo(BookEndpointGroup.LOOKUP);
+        assertThat(BookEndpointGroup.of("GET", BOOK_API, "title=dom&page=0")).isEqualTo(BookEndpointGroup.SEARCH);
+        assertThat(BookEndpointGroup.of("GET", BOOK_API, "cursor=")).isEqualTo(BookEndpointGroup.SEARCH);
+        assertThat(BookEndpointGroup.of("GET", BOOK_API + "/facets/authors", "title=dom")).isEqualTo(BookEndpointGroup.SEARCH);
+        assertThat(BookEndpointGroup.of("GET", BOOK_API + "/export", "format=csv")).isEqualTo(BookEndpointGroup.BULK);
+        assertThat(BookEndpointGroup.of("POST", BOOK_API + "/import", null)).isEqualTo(BookEndpointGroup.BULK);
+        assertThat(BookEndpointGroup.of("PATCH", BOOK_API + "/1", null)).isEqualTo(BookEndpointGroup.WRITE);
+        assertThat(BookEndpointGroup.of("DELETE", BOOK_API, "ids=1")).isEqualTo(BookEndpointGroup.WRITE);
+        assertThat(BookEndpointGroup.of("GET", "/actuator/health", null)).isNull();
+        assertThat(BookEndpointGroup.of("GET", BOOK_API + "shelf", null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve responder 429 com Retry-After quando o cliente passa da taxa")
+    public void rateLimitTest() throws Exception {
+
+        // Given
+        BookAdmissionFilter filter = new BookAdmissionFilter(new ObjectMapper(), 0.001, 2, "X-Client-Id", 1);
+
+        // When
+        MockHttpServletResponse first = execute(filter, show("a"));
+        MockHttpServletResponse second = execute(filter, show("a"));
+        MockHttpServletResponse third = execute(filter, show("a"));
+        MockHttpServletResponse otherClient = execute(filter, show("b"));
+
+        // Then
+        assertThat(first.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(second.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(third.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(Long.parseLong(third.getHeader(HttpHeaders.RETRY_AFTER))).isPositive();
+        assertThat(third.getContentAsString()).contains("errors");
+        assertThat(otherClient.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter.getRateLimited(BookEndpointGroup.LOOKUP)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Nao deve limitar por cliente sem client-header configurado")
+    public void noRateLimitWithoutClientHeaderTest() throws Exception {
+
+        // Given the same low rate, but no header to tell clients apart
+        BookAdmissionFilter filter = new BookAdmissionFilter(new ObjectMapper(), 0.001, 2, "", 1);
+
+        // When
+        execute(filter, show("a"));
+        execute(filter, show("a"));
+        MockHttpServletResponse third = execute(filter, show("a"));
+
+        // Then
+        assertThat(filter.isRateLimited()).isFalse();
+        assertThat(third.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter.getRateLimited(BookEndpointGroup.LOOKUP)).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve responder 503 com Retry-After quando o grupo nao tem vaga")
+    public void shedOverCapacityTest() throws Exception {
+
+        // Given every BULK slot taken
+        BookAdmissionFilter filter = new BookAdmissionFilter(new ObjectMapper(), 1000, 1000, "", 3);
+        AdaptiveLimiter bulk = filter.getLimiter(BookEndpointGroup.BULK);
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveLimiter.Permit permit;
+
+        while ((permit = bulk.tryAcquire(0)) != null) {
+            permits.add(permit);
+        }
+
+        // When
+        MockHttpServletResponse response = execute(filter, new MockHttpServletRequest("GET", BOOK_API + "/export"));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        assertThat(execute(filter, show(null)).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        // And the slots come back once released
+        permits.forEach(p -> p.release(false));
+
+        assertThat(execute(filter, new MockHttpServletRequest("GET", BOOK_API + "/export")).getStatus())
+                .isEqualTo(HttpStatus.OK.value());
+        assertThat(bulk.getInflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve descartar buscas enquanto ha lookups por id na fila")
+    public void searchBelowLookupTest() throws Exception {
+
+        // Given a lookup waiting for a slot
+        BookAdmissionFilter filter = new BookAdmissionFilter(new ObjectMapper(), 1000, 1000, "", 1);
+        AdaptiveLimiter lookup = filter.getLimiter(BookEndpointGroup.LOOKUP);
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveLimiter.Permit permit;
+
+        while ((permit = lookup.tryAcquire(0)) != null) {
+            permits.add(permit);
+        }
+
+        Thread waiting = new Thread(() -> lookup.tryAcquire(TimeUnit.SECONDS.toNanos(5)));
+        waiting.start();
+
+        while (!lookup.isQueueing()) {
+            Thread.sleep(1);
+        }
+
+        // When
+        MockHttpServletRequest search = new MockHttpServletRequest("GET", BOOK_API);
+        search.setQueryString("title=dom");
+
+        MockHttpServletResponse searchResponse = execute(filter, search);
+        MockHttpServletResponse writeResponse = execute(filter, new MockHttpServletRequest("DELETE", BOOK_API + "/1"));
+
+        permits.forEach(p -> p.release(false));
+        waiting.join(5000);
+
+        // Then
+        assertThat(searchResponse.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(writeResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter.getLimiter(BookEndpointGroup.SEARCH).getRejected()).isEqualTo(1);
+    }
+
+    private static MockHttpServletRequest show(String client) {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", BOOK_API + "/1");
+
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+
+        return request;
+    }
+
+    private static MockHttpServletResponse execute(BookAdmissionFilter filter, MockHttpServletRequest request) throws Exception {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        return response;
+    }
+}
@@ -1,9 +1,17 @@
 package br.com.a2da.libraryapi.api.controller.book;
 
 import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.exception.QueueFullException;
 import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookCountMode;
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
+import br.com.a2da.libraryapi.core.service.book.BookIngestQueue;
+import br.com.a2da.libraryapi.core.service.book.BookIngestStatus;
 import br.com.a2da.libraryapi.core.service.book.BookQuery;
 import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.core.service.book.CountedPage;
 import br.com.a2da.libraryapi.helperTest.BookHelperTest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
@@ -18,33 +26,51 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest
 @AutoConfigureMockMvc
+@Import(BookJsonCache.class)
 public class BookControllerTest {
 
     /*
@@ -73,20 +99,33 @@ public class BookControllerTest {
     @MockBean
     BookMarshallerService bookMarshallerServiceMocked;
 
+    @MockBean
+    BookImportService bookImportServiceMocked;
+
+    @MockBean
+    BookIngestQueue bookIngestQueueMocked;
+
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    BookJsonCache bookJsonCache;
+
     final Book bookFromBookFormMocked = mock(Book.class);
     final Book bookWithIdMocked = mock(Book.class);
     final BookQuery bookQueryMocked = mock(BookQuery.class);
     final Long ID = BookHelperTest.ID;
     final Long ID_NOT_FOUND = BookHelperTest.ID_NOT_FOUND;
+    final Long VERSION = 3L;
     BookDTO bookDTOWithId;
 
     @BeforeEach
     public void beforeEachTest() {
 
-        bookDTOWithId = BookDTO.builder().id(ID).build();
+        bookDTOWithId = BookDTO.builder().id(ID).version(VERSION).build();
+
+        // o contexto e compartilhado entre os testes: nenhum fragmento de outro teste
+        bookJsonCache.invalidateAll();
     }
 
     @AfterEach
@@ -97,6 +136,8 @@ public class BookControllerTest {
         verifyNoMoreInteractions(bookQueryMocked);
         verifyNoMoreInteractions(bookServiceMocked);
         verifyNoMoreInteractions(bookMarshallerServiceMocked);
+        verifyNoMoreInteractions(bookImportServiceMocked);
+        verifyNoMoreInteractions(bookIngestQueueMocked);
     }
 
     @Test
@@ -216,6 +257,116 @@ public class BookControllerTest {
                 .save(Mockito.any(Book.class));
     }
 
+    @Test
+    @DisplayName("Deve enfileirar o livro e responder 202 quando o cliente pedir respond-async")
+    public void createBookAsyncTest() throws Exception {
+
+        // Given a valid JSON body
+        String jsonRequest = objectMapper.writeValueAsString(
+                new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }}
+        );
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookSave(Mockito.any(BookForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookIngestQueueMocked.enqueue(bookFromBookFormMocked))
+                .willReturn(ID);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .header("Prefer", "wait=5, respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(jsonRequest);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, BOOK_API + "/ingest/" + ID))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("id").value(ID))
+                .andExpect(jsonPath("status").value("QUEUED"))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1)).bindToBookSave(Mockito.any(BookForm.class));
+        verify(bookIngestQueueMocked, times(1)).enqueue(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve responder 503 com Retry-After quando a fila de criacao estiver cheia")
+    public void createBookAsyncQueueFullTest() throws Exception {
+
+        // Given a valid JSON body
+        String jsonRequest = objectMapper.writeValueAsString(
+                new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }}
+        );
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookSave(Mockito.any(BookForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookIngestQueueMocked.enqueue(bookFromBookFormMocked))
+                .willThrow(new QueueFullException("Fila de criacao de livros cheia"));
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(jsonRequest);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("errors[0]").value("Fila de criacao de livros cheia"))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1)).bindToBookSave(Mockito.any(BookForm.class));
+        verify(bookIngestQueueMocked, times(1)).enqueue(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve informar a situacao de um livro criado de forma assincrona")
+    public void ingestStatusTest() throws Exception {
+
+        // Expected that call
+        given(bookIngestQueueMocked.status(ID))
+                .willReturn(Optional.of(BookIngestStatus.failed("Isbn ja cadastrado")));
+        given(bookIngestQueueMocked.status(ID_NOT_FOUND))
+                .willReturn(Optional.empty());
+
+        // When execute request / Then validate response
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/ingest/" + ID).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(ID))
+                .andExpect(jsonPath("status").value("FAILED"))
+                .andExpect(jsonPath("error").value("Isbn ja cadastrado"))
+        ;
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/ingest/" + ID_NOT_FOUND).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        // And verify mocks interaction
+        verify(bookIngestQueueMocked, times(1)).status(ID);
+        verify(bookIngestQueueMocked, times(1)).status(ID_NOT_FOUND);
+    }
+
     @Test
     @DisplayName("Deve obter informaçoes de um livro")
     public void getBookDetailsTest() throws Exception {
@@ -227,23 +378,101 @@ public class BookControllerTest {
                 .willReturn(Optional.of(bookWithIdMocked));
         given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
                 .willReturn(bookDTOWithId);
+        given(bookWithIdMocked.getId()).willReturn(ID);
+        given(bookWithIdMocked.getVersion()).willReturn(VERSION);
 
-        // When execute request
+        // When execute request twice: the second one comes from the JSON cache
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .get(BOOK_API.concat("/" + ID))
                 .accept(MediaType.APPLICATION_JSON);
 
+        mockMvc.perform(request).andExpect(status().isOk());
+
         ResultActions resultActions = mockMvc.perform(request);
 
         // Then validate response
         resultActions
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("id").value(ID))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"11-3\""))
+        ;
+
+        // And verify mocks interaction: the Book is converted only on the cache miss
+        verify(bookServiceMocked, times(2))
+                .findById(ID);
+        verify(bookWithIdMocked, times(2)).getId();
+        verify(bookWithIdMocked, times(2)).getVersion();
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 sem carregar o livro quando o ETag nao mudou")
+    public void getBookDetailsNotModifiedTest() throws Exception {
+
+        // Given the current ETag of the Book
+
+        // Expected that call findVersionById
+        given(bookServiceMocked.findVersionById(ID))
+                .willReturn(Optional.of(VERSION));
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + ID))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"11-3\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"11-3\""))
+                .andExpect(MockMvcResultMatchers.content().string(""))
+        ;
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .findVersionById(ID);
+    }
+
+    @Test
+    @DisplayName("Deve retornar o livro quando o ETag informado estiver desatualizado")
+    public void getBookDetailsModifiedTest() throws Exception {
+
+        // Given an old ETag of the Book
+
+        // Expected that call
+        given(bookServiceMocked.findVersionById(ID))
+                .willReturn(Optional.of(VERSION));
+        given(bookServiceMocked.findById(ID))
+                .willReturn(Optional.of(bookWithIdMocked));
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(bookDTOWithId);
+        given(bookWithIdMocked.getId()).willReturn(ID);
+        given(bookWithIdMocked.getVersion()).willReturn(VERSION);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + ID))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"11-2\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("version").value(VERSION))
         ;
 
         // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .findVersionById(ID);
         verify(bookServiceMocked, times(1))
                 .findById(ID);
+        verify(bookWithIdMocked, times(1)).getId();
+        verify(bookWithIdMocked, times(1)).getVersion();
         verify(bookMarshallerServiceMocked, times(1))
                 .bindToBookDTO(bookWithIdMocked);
     }
@@ -280,9 +509,9 @@ public class BookControllerTest {
 
         // Given a Book ID that exists
 
-        // Expected that call findById
-        given(bookServiceMocked.findById(ID))
-                .willReturn(Optional.of(bookWithIdMocked));
+        // Expected that call deleteById
+        given(bookServiceMocked.deleteById(ID))
+                .willReturn(true);
 
         // When execute request
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -295,8 +524,7 @@ public class BookControllerTest {
                 .andExpect(status().isNoContent());
 
         // And verify mocks interaction
-        verify(bookServiceMocked, times(1)).findById(ID);
-        verify(bookServiceMocked, times(1)).delete(bookWithIdMocked);
+        verify(bookServiceMocked, times(1)).deleteById(ID);
     }
 
     @Test
@@ -305,9 +533,9 @@ public class BookControllerTest {
 
         // Given a Book ID that exists
 
-        // Expected that call findById
-        given(bookServiceMocked.findById(ID_NOT_FOUND))
-                .willReturn(Optional.empty());
+        // Expected that call deleteById
+        given(bookServiceMocked.deleteById(ID_NOT_FOUND))
+                .willReturn(false);
 
         // When execute request
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -321,7 +549,7 @@ public class BookControllerTest {
 
         // And verify mocks interaction
         verify(bookServiceMocked, times(1))
-                .findById(ID_NOT_FOUND);
+                .deleteById(ID_NOT_FOUND);
     }
 
     @Test
@@ -452,6 +680,9 @@ public class BookControllerTest {
         given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
                 .willReturn(bookDTOWithId);
 
+        given(bookWithIdMocked.getId()).willReturn(ID);
+        given(bookWithIdMocked.getVersion()).willReturn(VERSION);
+
         // When execute request
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .get(BOOK_API.concat(queryString))
@@ -462,6 +693,7 @@ public class BookControllerTest {
         // Then validate response
         resultActions
                 .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
                 .andExpect(jsonPath("content", Matchers.hasSize(2)))
                 .andExpect(jsonPath("totalElements").value(2))
                 .andExpect(jsonPath("pageable.pageSize").value(100))
@@ -490,8 +722,717 @@ public class BookControllerTest {
         assertThat(pageableParam.getPageSize()).isEqualTo(100);
 
 
-        verify(bookMarshallerServiceMocked, times(2))
+        // ETag: id/version twice per book; JSON cache: once per book, converted only on the miss
+        verify(bookWithIdMocked, times(6)).getId();
+        verify(bookWithIdMocked, times(6)).getVersion();
+
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 na busca sem converter nem serializar a pagina")
+    public void findBookNotModifiedTest() throws Exception {
+
+        // Given the ETag of the current result
+        PageImpl<Book> page = new PageImpl<Book>(
+                Arrays.asList(bookWithIdMocked),
+                PageRequest.of(0, 20),
+                1
+        );
+
+        given(bookMarshallerServiceMocked.bindBookQueryFormToBookQuery(any(BookQueryForm.class)))
+                .willReturn(bookQueryMocked);
+        given(bookServiceMocked.find(eq(bookQueryMocked), any(Pageable.class)))
+                .willReturn(page);
+        given(bookWithIdMocked.getId()).willReturn(ID);
+        given(bookWithIdMocked.getVersion()).willReturn(VERSION);
+
+        String etag = BookETag.of(page);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=0&size=20"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, etag))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindBookQueryFormToBookQuery(any(BookQueryForm.class));
+        verify(bookServiceMocked, times(1))
+                .find(eq(bookQueryMocked), any(Pageable.class));
+        verify(bookWithIdMocked, times(2)).getId();
+        verify(bookWithIdMocked, times(2)).getVersion();
+    }
+
+    @Test
+    @DisplayName("Deve repassar o modo de count e informar o tipo do total")
+    public void findBookCappedCountTest() throws Exception {
+
+        // Given a search with more matches than the cap
+        given(bookMarshallerServiceMocked.bindBookQueryFormToBookQuery(any(BookQueryForm.class)))
+                .willReturn(bookQueryMocked);
+        given(bookServiceMocked.find(eq(bookQueryMocked), any(Pageable.class), eq(BookCountMode.CAPPED)))
+                .willReturn(new CountedPage<Book>(
+                        Arrays.asList(bookWithIdMocked),
+                        PageRequest.of(0, 1),
+                        10000,
+                        BookCountMode.CAPPED
+                ));
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(bookDTOWithId);
+        given(bookWithIdMocked.getId()).willReturn(ID);
+        given(bookWithIdMocked.getVersion()).willReturn(VERSION);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=0&size=1&count=capped"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(10000))
+                .andExpect(jsonPath("totalType").value("CAPPED"))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindBookQueryFormToBookQuery(any(BookQueryForm.class));
+        verify(bookServiceMocked, times(1))
+                .find(eq(bookQueryMocked), any(Pageable.class), eq(BookCountMode.CAPPED));
+        verify(bookWithIdMocked, times(3)).getId();
+        verify(bookWithIdMocked, times(3)).getVersion();
+        verify(bookMarshallerServiceMocked, times(1))
                 .bindToBookDTO(bookWithIdMocked);
     }
-}
 
+    @Test
+    @DisplayName("Deve retornar 400 para modo de count invalido")
+    public void findBookInvalidCountTest() throws Exception {
+
+        // Given
+        given(bookMarshallerServiceMocked.bindBookQueryFormToBookQuery(any(BookQueryForm.class)))
+                .willReturn(bookQueryMocked);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?count=approximate"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // Then validate response
+        mockMvc.perform(request).andExpect(status().isBadRequest());
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindBookQueryFormToBookQuery(any(BookQueryForm.class));
+    }
+
+    @Test
+    @DisplayName("Deve paginar por cursor sem count")
+    public void findBookByCursorTest() throws Exception {
+
+        // Given the first page request
+        String queryString = String.format(
+                "?title=%s&cursor=&size=1&sort=title,asc",
+                BookHelperTest.DOM_CASMURRO
+        );
+
+        Book book = BookHelperTest.createBook();
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindBookQueryFormToBookQuery(any(BookQueryForm.class)))
+                .willReturn(bookQueryMocked);
+
+        given(bookServiceMocked.findSlice(eq(bookQueryMocked), any(BookCursor.class), eq(1)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        given(bookMarshallerServiceMocked.bindToBookDTO(book))
+                .willReturn(bookDTOWithId);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        String expectedNext = BookCursor.first(Sort.by("title")).after(book).encode();
+
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(expectedNext))
+                .andExpect(jsonPath("totalElements").doesNotExist())
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindBookQueryFormToBookQuery(any(BookQueryForm.class));
+
+        ArgumentCaptor<BookCursor> cursor = ArgumentCaptor.forClass(BookCursor.class);
+
+        verify(bookServiceMocked, times(1))
+                .findSlice(eq(bookQueryMocked), cursor.capture(), eq(1));
+
+        assertThat(cursor.getValue().getProperty()).isEqualTo("title");
+        assertThat(cursor.getValue().isFirst()).isTrue();
+
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookDTO(book);
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para cursor invalido")
+    public void findBookByInvalidCursorTest() throws Exception {
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?cursor=invalido"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve retornar os autores com mais livros restritos a busca")
+    public void authorFacetsTest() throws Exception {
+
+        // Given
+        BookAuthorFacet facet = new BookAuthorFacet(BookHelperTest.MACHADO_DE_ASSIS, 2);
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindBookQueryFormToBookQuery(any(BookQueryForm.class)))
+                .willReturn(bookQueryMocked);
+
+        given(bookServiceMocked.findAuthorFacets(bookQueryMocked, "mach", 5))
+                .willReturn(Collections.singletonList(facet));
+
+        given(bookMarshallerServiceMocked.bindToBookAuthorFacetDTO(facet))
+                .willReturn(BookAuthorFacetDTO.builder().author(BookHelperTest.MACHADO_DE_ASSIS).count(2L).build());
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/facets/authors?title=dom&prefix=mach&limit=5"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("[0].author").value(BookHelperTest.MACHADO_DE_ASSIS))
+                .andExpect(jsonPath("[0].count").value(2))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindBookQueryFormToBookQuery(any(BookQueryForm.class));
+
+        verify(bookServiceMocked, times(1))
+                .findAuthorFacets(bookQueryMocked, "mach", 5);
+
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookAuthorFacetDTO(facet);
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para limit de facetas fora do intervalo")
+    public void authorFacetsInvalidLimitTest() throws Exception {
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/facets/authors?limit=0"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve criar livros em lote reportando o resultado de cada item")
+    public void createBookBatchTest() throws Exception {
+
+        // Given a batch with a valid, an invalid and a duplicated book
+        String jsonRequest = objectMapper.writeValueAsString(Arrays.asList(
+                new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }},
+                Collections.emptyMap(),
+                new HashMap<String, Object>() {{
+                    put("author", BookHelperTest.MACHADO_DE_ASSIS);
+                    put("title", BookHelperTest.DOM_CASMURRO);
+                    put("isbn", BookHelperTest.DOM_CASMURRO_ISBN);
+                }}
+        ));
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookSave(Mockito.any(BookForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookServiceMocked.saveAll(Arrays.asList(bookFromBookFormMocked, bookFromBookFormMocked)))
+                .willReturn(Arrays.asList(
+                        BookBatchResult.created(BookHelperTest.createBook()),
+                        BookBatchResult.duplicated(bookFromBookFormMocked)
+                ));
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(jsonRequest);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(1))
+                .andExpect(jsonPath("rejected").value(2))
+                .andExpect(jsonPath("items", Matchers.hasSize(3)))
+                .andExpect(jsonPath("items[0].status").value(BookBatchItemDTO.CREATED))
+                .andExpect(jsonPath("items[0].id").value(ID))
+                .andExpect(jsonPath("items[1].status").value(BookBatchItemDTO.INVALID))
+                .andExpect(jsonPath("items[1].errors", Matchers.hasSize(6)))
+                .andExpect(jsonPath("items[2].status").value(BookBatchItemDTO.DUPLICATED))
+                .andExpect(jsonPath("items[2].index").value(2))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(2))
+                .bindToBookSave(Mockito.any(BookForm.class));
+        verify(bookServiceMocked, times(1))
+                .saveAll(Arrays.asList(bookFromBookFormMocked, bookFromBookFormMocked));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 quando o lote passa do limite de livros")
+    public void createBookBatchTooLargeTest() throws Exception {
+
+        // Given a batch with one book over the limit
+        String jsonRequest = objectMapper.writeValueAsString(
+                Collections.nCopies(BookController.MAX_BATCH_BOOKS + 1, Collections.emptyMap())
+        );
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(jsonRequest);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response without validating or saving any book
+        resultActions
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 quando ids e cursor sao enviados juntos")
+    public void findByIdsAndCursorTest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=1,2&cursor="))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo em NDJSON, um livro por linha")
+    @SuppressWarnings("unchecked")
+    public void exportNdjsonTest() throws Exception {
+
+        // Expected that call
+        willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(bookWithIdMocked);
+            consumer.accept(bookWithIdMocked);
+            return null;
+        }).given(bookServiceMocked).export(Mockito.any(Consumer.class));
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(bookDTOWithId);
+
+        // When execute request
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        ResultActions resultActions = mockMvc.perform(asyncDispatch(asyncResult));
+
+        // Then validate response
+        String line = objectMapper.writeValueAsString(bookDTOWithId);
+
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(content().string(line + "\n" + line + "\n"))
+        ;
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .export(Mockito.any(Consumer.class));
+        verify(bookMarshallerServiceMocked, times(2))
+                .bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve exportar catalogo vazio em NDJSON como corpo vazio")
+    @SuppressWarnings("unchecked")
+    public void exportEmptyNdjsonTest() throws Exception {
+
+        // When execute request with no books
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        ResultActions resultActions = mockMvc.perform(asyncDispatch(asyncResult));
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(content().string(""))
+        ;
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .export(Mockito.any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo em CSV escapando os campos")
+    @SuppressWarnings("unchecked")
+    public void exportCsvTest() throws Exception {
+
+        // Expected that call
+        willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(bookWithIdMocked);
+            return null;
+        }).given(bookServiceMocked).export(Mockito.any(Consumer.class));
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(BookDTO.builder()
+                        .id(ID)
+                        .title("Ola, \"mundo\"")
+                        .author(BookHelperTest.MACHADO_DE_ASSIS)
+                        .isbn(BookHelperTest.DOM_CASMURRO_ISBN)
+                        .version(VERSION)
+                        .build());
+
+        // When execute request
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")).param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        ResultActions resultActions = mockMvc.perform(asyncDispatch(asyncResult));
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.csv\""))
+                .andExpect(content().string("id,title,author,isbn,version\n"
+                        + ID + ",\"Ola, \"\"mundo\"\"\"," + BookHelperTest.MACHADO_DE_ASSIS + ","
+                        + BookHelperTest.DOM_CASMURRO_ISBN + "," + VERSION + "\n"))
+        ;
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .export(Mockito.any(Consumer.class));
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve recusar formato de exportacao desconhecido")
+    public void exportInvalidFormatTest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")).param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve importar um arquivo CSV retornando o resumo")
+    public void importCsvTest() throws Exception {
+
+        // Expected that call
+        given(bookImportServiceMocked.importBooks(Mockito.eq(BookImportFormat.CSV), Mockito.any(InputStream.class)))
+                .willReturn(BookImportDTO.builder()
+                        .rows(3)
+                        .inserted(1)
+                        .skipped(1)
+                        .failed(1)
+                        .errors(Arrays.asList("Linha 4: isbn must not be empty"))
+                        .build());
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("title,author,isbn\n");
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("rows").value(3))
+                .andExpect(jsonPath("inserted").value(1))
+                .andExpect(jsonPath("skipped").value(1))
+                .andExpect(jsonPath("failed").value(1))
+                .andExpect(jsonPath("errors", Matchers.hasSize(1)))
+        ;
+
+        // And verify mocks interaction
+        verify(bookImportServiceMocked, times(1))
+                .importBooks(Mockito.eq(BookImportFormat.CSV), Mockito.any(InputStream.class));
+    }
+
+    @Test
+    @DisplayName("Deve recusar importacao com Content-Type nao suportado")
+    public void importUnsupportedMediaTypeTest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<books/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o patch com a versao do If-Match e devolver o novo ETag")
+    public void patchBookTest() throws Exception {
+
+        // Given a partial JSON body
+        String jsonRequest = objectMapper.writeValueAsString(
+                new HashMap<String, Object>() {{
+                    put("title", BookHelperTest.CAPITAES_DA_AREIA);
+                }}
+        );
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookPatch(Mockito.eq(ID), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookServiceMocked.patch(bookFromBookFormMocked))
+                .willReturn(Optional.of(VERSION + 1));
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .patch(BOOK_API.concat("/" + ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, BookETag.of(ID, VERSION))
+                .content(jsonRequest);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, BookETag.of(ID, VERSION + 1)))
+        ;
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookPatch(Mockito.eq(ID), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class));
+        verify(bookServiceMocked, times(1))
+                .patch(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve exigir a versao no patch")
+    public void patchBookWithoutVersionTest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .patch(BOOK_API.concat("/" + ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"" + BookHelperTest.CAPITAES_DA_AREIA + "\"}"))
+                .andExpect(status().isPreconditionRequired());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 409 no patch com versao desatualizada")
+    public void patchBookConflictTest() throws Exception {
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookPatch(Mockito.eq(ID), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookServiceMocked.patch(bookFromBookFormMocked))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, ID));
+
+        // When execute request
+        ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders
+                .patch(BOOK_API.concat("/" + ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"" + BookHelperTest.CAPITAES_DA_AREIA + "\",\"version\":" + VERSION + "}"));
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("errors[0]").value("Livro alterado por outra requisicao"));
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookPatch(Mockito.eq(ID), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class));
+        verify(bookServiceMocked, times(1))
+                .patch(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 no patch de livro inexistente")
+    public void patchBookNotFoundTest() throws Exception {
+
+        // Expected that call
+        given(bookMarshallerServiceMocked.bindToBookPatch(Mockito.eq(ID_NOT_FOUND), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class)))
+                .willReturn(bookFromBookFormMocked);
+        given(bookServiceMocked.patch(bookFromBookFormMocked))
+                .willReturn(Optional.empty());
+
+        // When execute request
+        ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders
+                .patch(BOOK_API.concat("/" + ID_NOT_FOUND))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, BookETag.of(ID_NOT_FOUND, VERSION))
+                .content("{\"author\":\"" + BookHelperTest.JORGE_AMADO + "\"}"));
+
+        // Then validate response
+        resultActions.andExpect(status().isNotFound());
+
+        // And verify mocks interaction
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookPatch(Mockito.eq(ID_NOT_FOUND), Mockito.eq(VERSION), Mockito.any(BookPatchForm.class));
+        verify(bookServiceMocked, times(1))
+                .patch(bookFromBookFormMocked);
+    }
+
+    @Test
+    @DisplayName("Deve deletar varios livros pelos ids informados")
+    public void deleteBooksByIdsTest() throws Exception {
+
+        // Expected that call deleteAllById with the distinct ids
+        given(bookServiceMocked.deleteAllById(new LinkedHashSet<>(Arrays.asList(ID, ID_NOT_FOUND))))
+                .willReturn(1);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .delete(BOOK_API)
+                .param("ids", ID + "," + ID_NOT_FOUND + "," + ID);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("requested").value(2))
+                .andExpect(jsonPath("deleted").value(1));
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .deleteAllById(new LinkedHashSet<>(Arrays.asList(ID, ID_NOT_FOUND)));
+    }
+
+    @Test
+    @DisplayName("Deve buscar varios livros por id na ordem pedida marcando os ausentes")
+    public void findBooksByIdsTest() throws Exception {
+
+        // Expected that call findAllById
+        Map<Long, Book> booksById = new LinkedHashMap<>();
+        booksById.put(ID, bookWithIdMocked);
+
+        given(bookServiceMocked.findAllById(Arrays.asList(ID_NOT_FOUND, ID)))
+                .willReturn(booksById);
+        given(bookMarshallerServiceMocked.bindToBookDTO(bookWithIdMocked))
+                .willReturn(bookDTOWithId);
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API)
+                .param("ids", ID_NOT_FOUND + "," + ID)
+                .accept(MediaType.APPLICATION_JSON);
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("found").value(1))
+                .andExpect(jsonPath("missing").value(1))
+                .andExpect(jsonPath("items[0].id").value(ID_NOT_FOUND))
+                .andExpect(jsonPath("items[0].status").value("MISSING"))
+                .andExpect(jsonPath("items[0].book").doesNotExist())
+                .andExpect(jsonPath("items[1].id").value(ID))
+                .andExpect(jsonPath("items[1].status").value("FOUND"))
+                .andExpect(jsonPath("items[1].book.id").value(ID));
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .findAllById(Arrays.asList(ID_NOT_FOUND, ID));
+        verify(bookMarshallerServiceMocked, times(1))
+                .bindToBookDTO(bookWithIdMocked);
+    }
+
+    @Test
+    @DisplayName("Deve buscar varios livros por id pelo corpo do POST")
+    public void lookupBooksTest() throws Exception {
+
+        // Expected that call findAllById
+        given(bookServiceMocked.findAllById(Arrays.asList(ID, ID_NOT_FOUND)))
+                .willReturn(Collections.emptyMap());
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        BookLookupForm.builder().ids(Arrays.asList(ID, ID_NOT_FOUND)).build()
+                ));
+
+        ResultActions resultActions = mockMvc.perform(request);
+
+        // Then validate response
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("found").value(0))
+                .andExpect(jsonPath("missing").value(2))
+                .andExpect(jsonPath("items", Matchers.hasSize(2)));
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1))
+                .findAllById(Arrays.asList(ID, ID_NOT_FOUND));
+    }
+
+    @Test
+    @DisplayName("Deve recusar lookup sem ids")
+    public void lookupBooksWithoutIdsTest() throws Exception {
+
+        // When execute request
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[]}");
+
+        // Then validate response
+        mockMvc.perform(request).andExpect(status().isBadRequest());
+    }
+}
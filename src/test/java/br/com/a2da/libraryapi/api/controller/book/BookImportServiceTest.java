@@ -0,0 +1,203 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    BookImportService bookImportService;
+
+    @MockBean
+    BookService bookServiceMocked;
+
+    @BeforeEach
+    public void setUp() {
+        this.bookImportService = new BookImportService(
+                bookServiceMocked,
+                new BookMarshallerService(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(),
+                2
+        );
+    }
+
+    @AfterEach
+    public void afterEachTest() {
+        verifyNoMoreInteractions(bookServiceMocked);
+    }
+
+    @Test
+    @DisplayName("Deve importar CSV em blocos reportando validos, duplicados e invalidos")
+    @SuppressWarnings("unchecked")
+    public void importCsvTest() throws Exception {
+
+        // Given a CSV with a quoted field, an invalid row and a duplicated isbn
+        String csv = "isbn,title,author\r\n"
+                + BookHelperTest.DOM_CASMURRO_ISBN + "," + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + "\r\n"
+                + BookHelperTest.CAPITAES_DA_AREIA_ISBN + ",\"Capitaes, da \"\"Areia\"\"\"," + BookHelperTest.JORGE_AMADO + "\r\n"
+                + "\r\n"
+                + "," + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + "\r\n"
+                + BookHelperTest.DOM_CASMURRO_ISBN + "," + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + "\r\n";
+
+        given(bookServiceMocked.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            return books.size() == 2
+                    ? Arrays.asList(BookBatchResult.created(books.get(0)), BookBatchResult.created(books.get(1)))
+                    : Arrays.asList(BookBatchResult.duplicated(books.get(0)));
+        });
+
+        // When
+        BookImportDTO result = bookImportService.importBooks(BookImportFormat.CSV, toInputStream(csv));
+
+        // Then
+        assertThat(result.getRows()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0)).startsWith("Linha 5: isbn");
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1)).saveAll(Arrays.asList(
+                Book.builder().isbn(BookHelperTest.DOM_CASMURRO_ISBN).title(BookHelperTest.DOM_CASMURRO).author(BookHelperTest.MACHADO_DE_ASSIS).build(),
+                Book.builder().isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN).title("Capitaes, da \"Areia\"").author(BookHelperTest.JORGE_AMADO).build()
+        ));
+        verify(bookServiceMocked, times(1)).saveAll(Arrays.asList(
+                Book.builder().isbn(BookHelperTest.DOM_CASMURRO_ISBN).title(BookHelperTest.DOM_CASMURRO).author(BookHelperTest.MACHADO_DE_ASSIS).build()
+        ));
+    }
+
+    @Test
+    @DisplayName("Deve importar NDJSON contando linhas mal formadas como falha")
+    @SuppressWarnings("unchecked")
+    public void importNdjsonTest() throws Exception {
+
+        // Given a NDJSON with a broken line
+        String ndjson = "{\"title\":\"" + BookHelperTest.DOM_CASMURRO + "\",\"author\":\"" + BookHelperTest.MACHADO_DE_ASSIS
+                + "\",\"isbn\":\"" + BookHelperTest.DOM_CASMURRO_ISBN + "\"}\n"
+                + "{\"title\":\n";
+
+        given(bookServiceMocked.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            return Arrays.asList(BookBatchResult.created(books.get(0)));
+        });
+
+        // When
+        BookImportDTO result = bookImportService.importBooks(BookImportFormat.NDJSON, toInputStream(ndjson));
+
+        // Then
+        assertThat(result.getRows()).isEqualTo(2);
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).containsExactly("Linha 2: JSON invalido");
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve gravar um a um quando o bloco falha por ISBN gravado concorrentemente")
+    @SuppressWarnings("unchecked")
+    public void importConcurrentDuplicateTest() throws Exception {
+
+        // Given a chunk whose insert conflicts with another request
+        String csv = "title,author,isbn\n"
+                + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + "," + BookHelperTest.DOM_CASMURRO_ISBN + "\n";
+
+        given(bookServiceMocked.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            // o insert desfeito ja tinha atribuido id e version
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> {
+                book.setId(BookHelperTest.ID);
+                book.setVersion(0L);
+            });
+            throw new BusinessException("Isbn ja cadastrado");
+        });
+        given(bookServiceMocked.save(Mockito.any(Book.class))).willThrow(new BusinessException("Isbn ja cadastrado"));
+
+        // When
+        BookImportDTO result = bookImportService.importBooks(BookImportFormat.CSV, toInputStream(csv));
+
+        // Then
+        assertThat(result.getInserted()).isZero();
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(result.isCompleted()).isTrue();
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(1)).saveAll(Mockito.anyList());
+        verify(bookServiceMocked, times(1)).save(Mockito.argThat(book -> book.getId() == null && book.getVersion() == null));
+    }
+
+    @Test
+    @DisplayName("Deve reportar sucesso parcial quando a importacao para no meio do arquivo")
+    @SuppressWarnings("unchecked")
+    public void importInterruptedTest() throws Exception {
+
+        // Given a second chunk that fails after the first one was committed
+        String csv = "title,author,isbn\n"
+                + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + "," + BookHelperTest.DOM_CASMURRO_ISBN + "\n"
+                + BookHelperTest.CAPITAES_DA_AREIA + "," + BookHelperTest.JORGE_AMADO + "," + BookHelperTest.CAPITAES_DA_AREIA_ISBN + "\n"
+                + BookHelperTest.DOM_CASMURRO + "," + BookHelperTest.MACHADO_DE_ASSIS + ",3333333333333\n";
+
+        given(bookServiceMocked.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+
+            if (books.size() == 1) {
+                throw new IllegalArgumentException("Book cant be null");
+            }
+
+            return Arrays.asList(BookBatchResult.created(books.get(0)), BookBatchResult.created(books.get(1)));
+        });
+
+        // When
+        BookImportDTO result = bookImportService.importBooks(BookImportFormat.CSV, toInputStream(csv));
+
+        // Then
+        assertThat(result.getRows()).isEqualTo(3);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.isCompleted()).isFalse();
+        assertThat(result.getInterruption()).isEqualTo("Importacao interrompida na linha 4: Book cant be null");
+
+        // And verify mocks interaction
+        verify(bookServiceMocked, times(2)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve recusar CSV sem as colunas obrigatorias")
+    public void importCsvWithoutHeaderTest() {
+
+        assertThatThrownBy(() -> bookImportService.importBooks(BookImportFormat.CSV, toInputStream("title,author\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static InputStream toInputStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookCountMode;
+import br.com.a2da.libraryapi.core.service.book.CountedPage;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookJsonCacheTest {
+
+    ObjectMapper objectMapper;
+
+    BookJsonCache bookJsonCache;
+
+    final AtomicInteger conversions = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        conversions.set(0);
+        objectMapper = new ObjectMapper();
+        bookJsonCache = new BookJsonCache(objectMapper, 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar o JSON enquanto a versao for a mesma, convertendo o livro so no miss")
+    public void reuseSameVersionTest() throws Exception {
+
+        // Given
+        Book book = createBook(1L);
+
+        // When
+        BookJson first = bookJsonCache.get(book, this::toBookDTO);
+        BookJson second = bookJsonCache.get(createBook(1L), this::toBookDTO);
+        BookJson newVersion = bookJsonCache.get(createBook(2L), this::toBookDTO);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(newVersion).isNotSameAs(first);
+        assertThat(conversions).hasValue(2);
+        assertThat(objectMapper.readTree(first.toString())).isEqualTo(objectMapper.valueToTree(BookMapper.INSTANCE.toBookDTO(book)));
+    }
+
+    @Test
+    @DisplayName("Deve descartar o JSON quando o livro e alterado ou excluido")
+    public void invalidateTest() {
+
+        // Given
+        BookJson cached = bookJsonCache.get(createBook(1L), this::toBookDTO);
+
+        // When
+        bookJsonCache.bookDeleted(BookHelperTest.ID);
+
+        // Then
+        assertThat(bookJsonCache.get(createBook(1L), this::toBookDTO)).isNotSameAs(cached);
+    }
+
+    @Test
+    @DisplayName("Deve montar a pagina com os fragmentos no mesmo formato do BookDTO")
+    public void pageSerializationTest() throws Exception {
+
+        // Given
+        Book book = createBook(1L);
+
+        CountedPage<BookJson> page = new CountedPage<>(
+                Arrays.asList(bookJsonCache.get(book, this::toBookDTO), bookJsonCache.get(book, this::toBookDTO)),
+                PageRequest.of(0, 2),
+                5,
+                BookCountMode.EXACT
+        );
+
+        // When
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(page));
+
+        // Then
+        assertThat(json.get("content")).hasSize(2);
+        assertThat(json.get("content").get(1)).isEqualTo(objectMapper.valueToTree(BookMapper.INSTANCE.toBookDTO(book)));
+        assertThat(json.get("totalElements").asLong()).isEqualTo(5);
+    }
+
+    private BookDTO toBookDTO(Book book) {
+        conversions.incrementAndGet();
+        return BookMapper.INSTANCE.toBookDTO(book);
+    }
+
+    private static Book createBook(Long version) {
+        return Book.builder()
+                .id(BookHelperTest.ID)
+                .title(BookHelperTest.DOM_CASMURRO)
+                .author(BookHelperTest.MACHADO_DE_ASSIS)
+                .isbn(BookHelperTest.DOM_CASMURRO_ISBN)
+                .version(version)
+                .build();
+    }
+}
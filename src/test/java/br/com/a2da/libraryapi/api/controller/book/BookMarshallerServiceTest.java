@@ -1,12 +1,128 @@
 package br.com.a2da.libraryapi.api.controller.book;
 
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 public class BookMarshallerServiceTest {
 
-    // TODO - implemente-me
+    BookMarshallerService bookMarshallerService;
+
+    @BeforeEach
+    public void setUp() {
+        this.bookMarshallerService = new BookMarshallerService();
+    }
+
+    @Test
+    @DisplayName("Deve converter um Book em BookDTO")
+    public void bindToBookDTOTest() {
+
+        // Given a saved Book
+        Book book = BookHelperTest.createBook();
+
+        // When
+        BookDTO bookDTO = bookMarshallerService.bindToBookDTO(book);
+
+        // Then
+        assertThat(bookDTO.getId()).isEqualTo(BookHelperTest.ID);
+        assertThat(bookDTO.getAuthor()).isEqualTo(BookHelperTest.MACHADO_DE_ASSIS);
+        assertThat(bookDTO.getTitle()).isEqualTo(BookHelperTest.DOM_CASMURRO);
+        assertThat(bookDTO.getIsbn()).isEqualTo(BookHelperTest.DOM_CASMURRO_ISBN);
+    }
+
+    @Test
+    @DisplayName("Deve converter um BookForm em Book para salvar")
+    public void bindToBookSaveTest() {
+
+        // Given a BookForm
+        BookForm bookForm = BookForm.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+
+        // When
+        Book book = bookMarshallerService.bindToBookSave(bookForm);
+
+        // Then
+        assertThat(book.getId()).isNull();
+        assertThat(book.getAuthor()).isEqualTo(BookHelperTest.JORGE_AMADO);
+        assertThat(book.getTitle()).isEqualTo(BookHelperTest.CAPITAES_DA_AREIA);
+        assertThat(book.getIsbn()).isEqualTo(BookHelperTest.CAPITAES_DA_AREIA_ISBN);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o BookForm em uma copia do Book sem alterar o id")
+    public void bindToBookUpdateTest() {
+
+        // Given a saved Book and a BookForm with another id
+        Book book = BookHelperTest.createBook();
+        BookForm bookForm = BookForm.builder()
+                .id(BookHelperTest.ID_NOT_FOUND)
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+
+        // When
+        Book bookUpdated = bookMarshallerService.bindToBookUpdate(bookForm, book);
+
+        // Then
+        assertThat(bookUpdated.getId()).isEqualTo(BookHelperTest.ID);
+        assertThat(bookUpdated.getAuthor()).isEqualTo(BookHelperTest.JORGE_AMADO);
+        assertThat(bookUpdated.getTitle()).isEqualTo(BookHelperTest.CAPITAES_DA_AREIA);
+        assertThat(bookUpdated.getIsbn()).isEqualTo(BookHelperTest.CAPITAES_DA_AREIA_ISBN);
+
+        // And keeps the (possibly cached) instance untouched
+        assertThat(bookUpdated).isNotSameAs(book);
+        assertThat(book).isEqualTo(BookHelperTest.createBook());
+    }
+
+    @Test
+    @DisplayName("Deve converter um BookQueryForm em BookQuery")
+    public void bindBookQueryFormToBookQueryTest() {
+
+        // Given a BookQueryForm
+        BookQueryForm bookQueryForm = BookQueryForm.builder()
+                .author(BookHelperTest.MACHADO_DE_ASSIS)
+                .title(BookHelperTest.DOM_CASMURRO)
+                .build();
+
+        // When
+        BookQuery bookQuery = bookMarshallerService.bindBookQueryFormToBookQuery(bookQueryForm);
+
+        // Then
+        assertThat(bookQuery.getAuthor()).isEqualTo(BookHelperTest.MACHADO_DE_ASSIS);
+        assertThat(bookQuery.getTitle()).isEqualTo(BookHelperTest.DOM_CASMURRO);
+    }
+
+    @Test
+    @DisplayName("Deve converter o modo de busca ignorando caixa")
+    public void bindBookQueryFormMatchTest() {
+
+        BookQuery prefix = bookMarshallerService.bindBookQueryFormToBookQuery(
+                BookQueryForm.builder().title("dom").match("prefix").build()
+        );
+        BookQuery byDefault = bookMarshallerService.bindBookQueryFormToBookQuery(
+                BookQueryForm.builder().title("dom").build()
+        );
+
+        assertThat(prefix.getMatch()).isEqualTo(BookMatchMode.PREFIX);
+        assertThat(byDefault.getMatch()).isNull();
+        assertThatThrownBy(() -> bookMarshallerService.bindBookQueryFormToBookQuery(
+                BookQueryForm.builder().match("like").build()
+        )).isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,77 @@
+package br.com.a2da.libraryapi.api.controller.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.HashMap;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * PUT que falha no flush (isbn de outro livro) com o cache "books" e o banco reais:
+ * o GET seguinte deve devolver o livro como esta no banco, nao os valores rejeitados.
+ * */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.datasource.generate-unique-name=true")
+@AutoConfigureMockMvc
+public class BookUpdateCacheTest {
+
+    static String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    BookService bookService;
+
+    @Test
+    @DisplayName("Deve manter o livro do cache inalterado quando o update falha por isbn duplicado")
+    public void failedUpdateKeepsCachedBookTest() throws Exception {
+
+        // Given two stored Books
+        Book book = bookService.save(BookHelperTest.createBookWithNullId(1));
+        Book otherBook = bookService.save(BookHelperTest.createBookWithNullId(2));
+
+        String jsonRequest = objectMapper.writeValueAsString(
+                new HashMap<Object, Object>() {{
+                    put("author", book.getAuthor());
+                    put("title", book.getTitle());
+                    put("isbn", otherBook.getIsbn());
+                }}
+        );
+
+        // When the update is rejected by uk_book_isbn
+        mockMvc.perform(MockMvcRequestBuilders
+                .put(BOOK_API + "/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isBadRequest());
+
+        // Then the next GET returns the stored values
+        mockMvc.perform(MockMvcRequestBuilders
+                .get(BOOK_API + "/" + book.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("isbn").value(book.getIsbn()))
+                .andExpect(jsonPath("version").value(book.getVersion()));
+    }
+}
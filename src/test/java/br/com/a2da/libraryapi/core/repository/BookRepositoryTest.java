@@ -1,6 +1,8 @@
 package br.com.a2da.libraryapi.core.repository;
 
 import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
 import br.com.a2da.libraryapi.helperTest.BookHelperTest;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,9 +10,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -103,4 +112,345 @@ public class BookRepositoryTest {
         // Then
         assertThat(bookRepository.findById(bookId)).isNotNull();
     }
+
+    @Test
+    @DisplayName("Deve listar os livros com id maior que o informado, em ordem de id")
+    public void findByIdGreaterThanTest() {
+
+        // Given two saved Books
+        Book firstBook = BookHelperTest.createBookWithNullId();
+        Book secondBook = BookHelperTest.createBookWithNullId();
+        secondBook.setIsbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN);
+        entityManager.persist(firstBook);
+        entityManager.persist(secondBook);
+
+        // When
+        Slice<Book> slice = bookRepository.findByIdGreaterThan(
+                firstBook.getId(),
+                PageRequest.of(0, 10, Sort.by("id"))
+        );
+
+        // Then
+        assertThat(slice.getContent()).containsExactly(secondBook);
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve buscar a proxima pagina a partir do cursor (titulo, id)")
+    public void findAfterTest() {
+
+        // Given three saved Books
+        Book dom = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        Book otherDom = BookHelperTest.createBookWithNullId();
+        otherDom.setIsbn("3333333333333");
+        entityManager.persist(dom);
+        entityManager.persist(capitaes);
+        entityManager.persist(otherDom);
+
+        BookCursor cursor = BookCursor.first(Sort.by("title"));
+
+        // When
+        List<Book> firstPage = bookRepository.findAfter(Example.of(new Book()), cursor, 2);
+        List<Book> secondPage = bookRepository.findAfter(
+                Example.of(new Book()),
+                cursor.after(firstPage.get(1)),
+                2
+        );
+
+        // Then
+        assertThat(firstPage).containsExactly(capitaes, dom);
+        assertThat(secondPage).containsExactly(otherDom);
+    }
+
+    @Test
+    @DisplayName("Deve paginar pelo cursor passando pelos livros sem titulo")
+    public void findAfterNullTitleTest() {
+
+        // Given two Books without title and one with title
+        Book untitled = BookHelperTest.createBookWithNullId();
+        untitled.setTitle(null);
+        Book otherUntitled = BookHelperTest.createBookWithNullId();
+        otherUntitled.setTitle(null);
+        otherUntitled.setIsbn("3333333333333");
+        Book dom = BookHelperTest.createBookWithNullId();
+        dom.setIsbn("4444444444444");
+        entityManager.persist(untitled);
+        entityManager.persist(otherUntitled);
+        entityManager.persist(dom);
+
+        BookCursor ascending = BookCursor.first(Sort.by("title"));
+        BookCursor descending = BookCursor.first(Sort.by(Sort.Direction.DESC, "title"));
+
+        // When each page has one Book
+        List<Book> ascendingSecondPage = bookRepository.findAfter(Example.of(new Book()), ascending.after(untitled), 2);
+        List<Book> descendingThirdPage = bookRepository.findAfter(Example.of(new Book()), descending.after(otherUntitled), 2);
+        List<Book> descendingSecondPage = bookRepository.findAfter(Example.of(new Book()), descending.after(dom), 2);
+
+        // Then nulls come first ascending and last descending
+        assertThat(ascendingSecondPage).containsExactly(otherUntitled, dom);
+        assertThat(descendingSecondPage).containsExactly(otherUntitled, untitled);
+        assertThat(descendingThirdPage).containsExactly(untitled);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o patch so nos campos informados quando a versao confere")
+    public void patchTest() {
+
+        // Given a saved Book
+        Book bookSavedInstance = BookHelperTest.createBookWithNullId();
+        entityManager.persistAndFlush(bookSavedInstance);
+        Long version = bookSavedInstance.getVersion();
+        entityManager.clear();
+
+        // When
+        int stale = bookRepository.patch(Book.builder()
+                .id(bookSavedInstance.getId())
+                .version(version + 1)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .build());
+        int updated = bookRepository.patch(Book.builder()
+                .id(bookSavedInstance.getId())
+                .version(version)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .build());
+
+        // Then
+        assertThat(stale).isZero();
+        assertThat(updated).isEqualTo(1);
+
+        Book bookPatched = entityManager.find(Book.class, bookSavedInstance.getId());
+        assertThat(bookPatched.getTitle()).isEqualTo(BookHelperTest.CAPITAES_DA_AREIA);
+        assertThat(bookPatched.getAuthor()).isEqualTo(BookHelperTest.MACHADO_DE_ASSIS);
+        assertThat(bookPatched.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Deve excluir pelo id retornando o numero de linhas apagadas")
+    public void deleteBookByIdTest() {
+
+        // Given two saved Books
+        Book firstBook = BookHelperTest.createBookWithNullId();
+        Book secondBook = BookHelperTest.createBookWithNullId();
+        secondBook.setIsbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN);
+        entityManager.persist(firstBook);
+        entityManager.persist(secondBook);
+        entityManager.flush();
+
+        // When
+        int deleted = bookRepository.deleteBookById(firstBook.getId());
+        int deletedAgain = bookRepository.deleteBookById(firstBook.getId());
+        int deletedInBulk = bookRepository.deleteBooksByIdIn(Arrays.asList(firstBook.getId(), secondBook.getId()));
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedAgain).isZero();
+        assertThat(deletedInBulk).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve excluir em massa retornando so os ids que existiam")
+    public void deleteAllExistingByIdTest() {
+
+        // Given two saved Books
+        Book firstBook = BookHelperTest.createBookWithNullId();
+        Book secondBook = BookHelperTest.createBookWithNullId();
+        secondBook.setIsbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN);
+        entityManager.persist(firstBook);
+        entityManager.persist(secondBook);
+        entityManager.flush();
+
+        // When
+        List<Long> deleted = bookRepository.deleteAllExistingById(
+                Arrays.asList(firstBook.getId(), -1L)
+        );
+        List<Long> deletedAgain = bookRepository.deleteAllExistingById(
+                Arrays.asList(firstBook.getId(), secondBook.getId())
+        );
+
+        // Then
+        assertThat(deleted).containsExactly(firstBook.getId());
+        assertThat(deletedAgain).containsExactly(secondBook.getId());
+    }
+
+    @Test
+    @DisplayName("Deve buscar so o conteudo da pagina e contar no maximo ate o limite")
+    public void findContentAndCountUpToTest() {
+
+        // Given three saved Books
+        Book dom = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        Book otherDom = BookHelperTest.createBookWithNullId();
+        otherDom.setIsbn("3333333333333");
+        entityManager.persist(dom);
+        entityManager.persist(capitaes);
+        entityManager.persist(otherDom);
+        entityManager.flush();
+
+        // When
+        List<Book> secondPage = bookRepository.findContent(
+                Example.of(new Book()),
+                PageRequest.of(1, 2, Sort.by("title"))
+        );
+        long upToOne = bookRepository.countUpTo(Example.of(new Book()), 1);
+        long upToTen = bookRepository.countUpTo(Example.of(new Book()), 10);
+
+        Book probe = new Book();
+        probe.setTitleNormalized("casmurro");
+        long containing = bookRepository.countUpTo(
+                Example.of(probe, ExampleMatcher.matching().withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)),
+                10
+        );
+        long exact = bookRepository.countUpTo(Example.of(probe), 10);
+
+        // Then
+        assertThat(secondPage).containsExactly(otherDom);
+        assertThat(upToOne).isEqualTo(2);
+        assertThat(upToTen).isEqualTo(3);
+        assertThat(containing).isEqualTo(2);
+        assertThat(exact).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por autor normalizado, filtrando pelo example e pelo prefixo")
+    public void countByAuthorTest() {
+
+        // Given two books by the same author (different case) and one by another
+        Book dom = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        Book quincas = Book.builder()
+                .author("MACHADO DE ASSIS")
+                .title("Quincas Borba")
+                .isbn("3333333333333")
+                .build();
+        entityManager.persist(dom);
+        entityManager.persist(capitaes);
+        entityManager.persist(quincas);
+        entityManager.flush();
+
+        Book domProbe = new Book();
+        domProbe.setTitleNormalized("dom");
+
+        // When
+        List<BookAuthorFacet> all = bookRepository.countByAuthor(Example.of(new Book()), null, 10);
+        List<BookAuthorFacet> first = bookRepository.countByAuthor(Example.of(new Book()), null, 1);
+        List<BookAuthorFacet> byPrefix = bookRepository.countByAuthor(Example.of(new Book()), "jor", 10);
+        List<BookAuthorFacet> ofSearch = bookRepository.countByAuthor(Example.of(
+                domProbe,
+                ExampleMatcher.matching().withIgnoreNullValues().withStringMatcher(ExampleMatcher.StringMatcher.STARTING)
+        ), null, 10);
+
+        // Then
+        assertThat(all).extracting(BookAuthorFacet::getCount).containsExactly(2L, 1L);
+        assertThat(all.get(0).getAuthor()).isEqualToIgnoringCase(BookHelperTest.MACHADO_DE_ASSIS);
+        assertThat(first).hasSize(1);
+        assertThat(byPrefix).containsExactly(new BookAuthorFacet(BookHelperTest.JORGE_AMADO, 1));
+        assertThat(ofSearch).extracting(BookAuthorFacet::getCount).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve manter title/author normalizados no insert, update e patch")
+    public void normalizedColumnsTest() {
+
+        // Given a saved Book
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        entityManager.persistAndFlush(capitaes);
+
+        // Then
+        assertThat(capitaes.getTitleNormalized()).isEqualTo("capitaes da areia");
+        assertThat(capitaes.getAuthorNormalized()).isEqualTo("jorge amado");
+
+        // When update and patch
+        capitaes.setTitle("Gabriela, Cravo e Canela");
+        entityManager.flush();
+        assertThat(capitaes.getTitleNormalized()).isEqualTo("gabriela, cravo e canela");
+
+        bookRepository.patch(Book.builder()
+                .id(capitaes.getId())
+                .version(capitaes.getVersion())
+                .author("Érico Veríssimo")
+                .build());
+        entityManager.clear();
+
+        // Then
+        Book bookPatched = entityManager.find(Book.class, capitaes.getId());
+        assertThat(bookPatched.getAuthorNormalized()).isEqualTo("erico verissimo");
+        assertThat(bookPatched.getTitleNormalized()).isEqualTo("gabriela, cravo e canela");
+    }
+
+    @Test
+    @DisplayName("Deve buscar por prefixo nas colunas normalizadas")
+    public void findByNormalizedPrefixTest() {
+
+        // Given two saved Books
+        Book dom = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        entityManager.persist(dom);
+        entityManager.persist(capitaes);
+        entityManager.flush();
+
+        Book probe = new Book();
+        probe.setTitleNormalized("capitaes");
+
+        // When
+        List<Book> prefix = bookRepository.findAll(Example.of(probe, ExampleMatcher.matching()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.STARTING)));
+        List<Book> exact = bookRepository.findAll(Example.of(probe, ExampleMatcher.matching()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.EXACT)));
+
+        // Then
+        assertThat(prefix).containsExactly(capitaes);
+        assertThat(exact).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve inserir em lote livros com id reservado da sequence")
+    public void insertAllWithIdsTest() {
+
+        // Given a persisted Book and two reserved ids
+        Book persisted = BookHelperTest.createBookWithNullId(1);
+        entityManager.persist(persisted);
+
+        Book first = BookHelperTest.createBookWithNullId(2);
+        Book second = BookHelperTest.createBookWithNullId(3);
+        first.setId(bookRepository.nextId());
+        second.setId(bookRepository.nextId());
+
+        // When
+        bookRepository.insertAllWithIds(Arrays.asList(first, second));
+        entityManager.clear();
+
+        // Then
+        assertThat(Arrays.asList(first.getId(), second.getId()))
+                .doesNotHaveDuplicates()
+                .doesNotContain(persisted.getId());
+
+        Book found = bookRepository.findById(second.getId()).get();
+        assertThat(found.getIsbn()).isEqualTo(second.getIsbn());
+        assertThat(found.getVersion()).isZero();
+        assertThat(found.getAuthorNormalized()).isEqualTo("jorge amado");
+        assertThat(bookRepository.existsByIsbn(first.getIsbn())).isTrue();
+    }
 }
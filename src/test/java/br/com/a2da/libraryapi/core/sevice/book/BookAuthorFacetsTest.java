@@ -0,0 +1,111 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.index.BookAuthorFacets;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookAuthorFacetsTest {
+
+    BookAuthorFacets bookAuthorFacets;
+
+    @MockBean
+    BookRepository bookRepositoryMocked;
+
+    @BeforeEach
+    public void setUp() {
+
+        given(bookRepositoryMocked.findByIdGreaterThan(anyLong(), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(Arrays.asList(
+                        Book.builder().id(1L).title(BookHelperTest.DOM_CASMURRO).author(BookHelperTest.MACHADO_DE_ASSIS).build(),
+                        Book.builder().id(2L).title(BookHelperTest.CAPITAES_DA_AREIA).author(BookHelperTest.JORGE_AMADO).build(),
+                        Book.builder().id(3L).title("Memórias Póstumas de Brás Cubas").author(BookHelperTest.MACHADO_DE_ASSIS).build(),
+                        Book.builder().id(4L).title("Gabriela, Cravo e Canela").author(BookHelperTest.JORGE_AMADO).build(),
+                        Book.builder().id(5L).title("Quincas Borba").author("MACHADO DE ASSIS").build()
+                )));
+
+        bookAuthorFacets = new BookAuthorFacets(bookRepositoryMocked, true);
+        bookAuthorFacets.load();
+    }
+
+    @Test
+    @DisplayName("Nao deve responder antes da carga inicial")
+    public void notReadyBeforeLoadTest() {
+
+        BookAuthorFacets notLoaded = new BookAuthorFacets(bookRepositoryMocked, true);
+
+        assertThat(notLoaded.top(null, null, 10)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve retornar os autores com mais livros ignorando caixa e acentos")
+    public void topAuthorsTest() {
+
+        assertThat(bookAuthorFacets.top(null, null, 10)).containsExactly(
+                new BookAuthorFacet("MACHADO DE ASSIS", 3),
+                new BookAuthorFacet(BookHelperTest.JORGE_AMADO, 2)
+        );
+        assertThat(bookAuthorFacets.top(null, null, 1)).containsExactly(
+                new BookAuthorFacet("MACHADO DE ASSIS", 3)
+        );
+    }
+
+    @Test
+    @DisplayName("Deve filtrar os autores pelo prefixo do nome")
+    public void topAuthorsByPrefixTest() {
+
+        assertThat(bookAuthorFacets.top(null, "JOR", 10)).containsExactly(
+                new BookAuthorFacet(BookHelperTest.JORGE_AMADO, 2)
+        );
+        assertThat(bookAuthorFacets.top(null, "zzz", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve contar so os livros encontrados pela busca")
+    public void topAuthorsOfSearchTest() {
+
+        assertThat(bookAuthorFacets.top(new long[]{1L, 2L, 4L, 99L}, null, 10)).containsExactly(
+                new BookAuthorFacet(BookHelperTest.JORGE_AMADO, 2),
+                new BookAuthorFacet("MACHADO DE ASSIS", 1)
+        );
+        assertThat(bookAuthorFacets.top(new long[]{1L, 2L, 4L}, "mach", 10)).containsExactly(
+                new BookAuthorFacet("MACHADO DE ASSIS", 1)
+        );
+    }
+
+    @Test
+    @DisplayName("Deve acompanhar save, update, update parcial e delete")
+    public void keepInSyncTest() {
+
+        bookAuthorFacets.bookSaved(Book.builder().id(6L).title("Dona Flor").author(BookHelperTest.JORGE_AMADO).build());
+        bookAuthorFacets.bookUpdated(Book.builder().id(1L).title("Helena").author("Clarice Lispector").build());
+        bookAuthorFacets.bookUpdated(Book.builder().id(3L).title("Iaia Garcia").build());
+        bookAuthorFacets.bookDeleted(5L);
+        bookAuthorFacets.bookDeleted(99L);
+
+        assertThat(bookAuthorFacets.top(null, null, 10)).containsExactly(
+                new BookAuthorFacet(BookHelperTest.JORGE_AMADO, 3),
+                new BookAuthorFacet("Clarice Lispector", 1),
+                new BookAuthorFacet("MACHADO DE ASSIS", 1)
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import br.com.a2da.libraryapi.core.service.book.index.BookCounter;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookCounterTest {
+
+    BookCounter bookCounter;
+
+    @MockBean
+    BookRepository bookRepositoryMocked;
+
+    @BeforeEach
+    public void setUp() {
+        bookCounter = new BookCounter(bookRepositoryMocked, 60000);
+    }
+
+    @Test
+    @DisplayName("Nao deve estar pronto antes da primeira contagem")
+    public void notReadyBeforeResyncTest() {
+
+        assertThat(bookCounter.isReady()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve somar saves e deletes ao total contado no banco")
+    public void totalFollowsChangesTest() {
+
+        // Given
+        given(bookRepositoryMocked.count()).willReturn(10L);
+        bookCounter.resync();
+
+        // When
+        bookCounter.bookSaved(BookHelperTest.createBook());
+        bookCounter.bookSaved(BookHelperTest.createBook());
+        bookCounter.bookDeleted(BookHelperTest.ID);
+
+        // Then
+        assertThat(bookCounter.isReady()).isTrue();
+        assertThat(bookCounter.total()).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("Deve corrigir a deriva na ressincronizacao")
+    public void resyncTest() {
+
+        // Given a counter that missed a delete
+        given(bookRepositoryMocked.count()).willReturn(10L);
+        bookCounter.resync();
+        bookCounter.bookSaved(BookHelperTest.createBook());
+
+        // When the database says otherwise
+        given(bookRepositoryMocked.count()).willReturn(10L);
+        bookCounter.resync();
+
+        // Then
+        assertThat(bookCounter.total()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Deve guardar a estimativa de cada query filtrada")
+    public void estimateTest() {
+
+        BookQuery bookQuery = BookQuery.builder().author(BookHelperTest.MACHADO_DE_ASSIS).build();
+
+        assertThat(bookCounter.estimate(bookQuery)).isNull();
+
+        bookCounter.putEstimate(bookQuery, 7);
+
+        assertThat(bookCounter.estimate(BookQuery.builder().author(BookHelperTest.MACHADO_DE_ASSIS).build())).isEqualTo(7L);
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.service.book.BookCursor;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookCursorTest {
+
+    @Test
+    @DisplayName("Deve iniciar pelo id quando nao houver ordenacao")
+    public void firstUnsortedTest() {
+
+        BookCursor cursor = BookCursor.first(Sort.unsorted());
+
+        assertThat(cursor.getProperty()).isEqualTo("id");
+        assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.ASC);
+        assertThat(cursor.isFirst()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve codificar e decodificar a posicao do ultimo livro")
+    public void encodeDecodeTest() {
+
+        BookCursor cursor = BookCursor.first(Sort.by(Sort.Direction.DESC, "title"))
+                .after(BookHelperTest.createBook());
+
+        BookCursor decoded = BookCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getLastId()).isEqualTo(BookHelperTest.ID);
+        assertThat(decoded.getLastValue()).isEqualTo(BookHelperTest.DOM_CASMURRO);
+    }
+
+    @Test
+    @DisplayName("Deve diferenciar chave nula de chave vazia no cursor")
+    public void encodeDecodeNullValueTest() {
+
+        BookCursor withNull = BookCursor.first(Sort.by("title"))
+                .after(BookHelperTest.createBook());
+        withNull.setLastValue(null);
+        BookCursor withEmpty = new BookCursor("title", Sort.Direction.ASC, BookHelperTest.ID, "");
+
+        assertThat(BookCursor.decode(withNull.encode()).getLastValue()).isNull();
+        assertThat(BookCursor.decode(withEmpty.encode()).getLastValue()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar cursor invalido")
+    public void invalidCursorTest() {
+
+        Throwable exception = Assertions.catchThrowable(() -> BookCursor.decode("nao-e-um-cursor"));
+
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar ordenacao por propriedade desconhecida")
+    public void invalidSortTest() {
+
+        Throwable exception = Assertions.catchThrowable(() -> BookCursor.first(Sort.by("publisher")));
+
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor pagination cant sort by publisher");
+    }
+}
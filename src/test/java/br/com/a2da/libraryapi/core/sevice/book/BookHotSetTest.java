@@ -0,0 +1,143 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookHotSet;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookHotSetTest {
+
+    @MockBean
+    BookService bookServiceMocked;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void afterEachTest() {
+        verifyNoMoreInteractions(bookServiceMocked);
+    }
+
+    @Test
+    @DisplayName("Deve gravar os ids do cache e recarrega-los na proxima subida")
+    @SuppressWarnings("unchecked")
+    public void saveAndWarmTest() {
+
+        // Given a cache with three books and a hot set that already warmed up
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(BookService.BOOK_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        Cache cache = cacheManager.getCache(BookService.BOOK_CACHE);
+
+        for (long id = 1; id <= 3; id++) {
+            cache.put(id, Book.builder().id(id).build());
+        }
+
+        Path file = directory.resolve("library.hotset");
+        BookHotSet previous = new BookHotSet(bookServiceMocked, cacheManager, file.toString(), 2);
+
+        assertThat(previous.warm()).isZero();
+
+        // When
+        previous.save();
+
+        Map<Long, Book> loaded = new HashMap<>();
+        loaded.put(1L, Book.builder().id(1L).build());
+        given(bookServiceMocked.findAllById(anyCollection())).willReturn(loaded);
+
+        BookHotSet next = new BookHotSet(bookServiceMocked, new CaffeineCacheManager(BookService.BOOK_CACHE), file.toString(), 2);
+        int warmed = next.warm();
+
+        // Then
+        assertThat(Files.exists(file)).isTrue();
+        assertThat(warmed).isEqualTo(1);
+        assertThat(next.isWarm()).isTrue();
+
+        // And verify mocks interaction
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+
+        verify(bookServiceMocked, times(1)).findAllById(ids.capture());
+        assertThat(ids.getValue()).hasSize(2).isSubsetOf(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Deve limitar o hot set ao maximumSize do cache")
+    @SuppressWarnings("unchecked")
+    public void limitToCacheSizeTest() {
+
+        // Given a file with three ids saved from an unbounded cache
+        CaffeineCacheManager unbounded = new CaffeineCacheManager(BookService.BOOK_CACHE);
+        Cache cache = unbounded.getCache(BookService.BOOK_CACHE);
+
+        for (long id = 1; id <= 3; id++) {
+            cache.put(id, Book.builder().id(id).build());
+        }
+
+        Path file = directory.resolve("library.hotset");
+        BookHotSet previous = new BookHotSet(bookServiceMocked, unbounded, file.toString(), 100_000);
+
+        previous.warm();
+        previous.save();
+
+        given(bookServiceMocked.findAllById(anyCollection())).willReturn(new HashMap<>());
+
+        // When the next start has a cache of two books
+        CaffeineCacheManager bounded = new CaffeineCacheManager(BookService.BOOK_CACHE);
+        bounded.setCaffeine(Caffeine.newBuilder().maximumSize(2));
+
+        new BookHotSet(bookServiceMocked, bounded, file.toString(), 100_000).warm();
+
+        // Then
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+
+        verify(bookServiceMocked, times(1)).findAllById(ids.capture());
+        assertThat(ids.getValue()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Nao deve sobrescrever o arquivo antes do warm-up")
+    public void skipSaveBeforeWarmTest() {
+
+        BookHotSet bookHotSet = new BookHotSet(bookServiceMocked, new CaffeineCacheManager(BookService.BOOK_CACHE),
+                directory.resolve("library.hotset").toString(), 10);
+
+        bookHotSet.save();
+
+        assertThat(Files.exists(directory.resolve("library.hotset"))).isFalse();
+        assertThat(bookHotSet.isWarm()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve terminar o warm-up sem arquivo de subida anterior")
+    public void warmWithoutFileTest() {
+
+        BookHotSet bookHotSet = new BookHotSet(bookServiceMocked, new CaffeineCacheManager(BookService.BOOK_CACHE),
+                directory.resolve("missing.hotset").toString(), 10);
+
+        assertThat(bookHotSet.warm()).isZero();
+        assertThat(bookHotSet.isWarm()).isTrue();
+    }
+}
@@ -0,0 +1,276 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.exception.QueueFullException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import br.com.a2da.libraryapi.core.service.book.BookIngestQueue;
+import br.com.a2da.libraryapi.core.service.book.BookIngestStatus;
+import br.com.a2da.libraryapi.core.service.book.index.BookIsbnFilter;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookIngestQueueTest {
+
+    @MockBean
+    BookRepository bookRepositoryMocked;
+
+    @MockBean
+    BookIsbnFilter bookIsbnFilterMocked;
+
+    @MockBean
+    BookChangeListener bookChangeListenerMocked;
+
+    BookIngestQueue bookIngestQueue;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @AfterEach
+    public void afterEachTest() throws InterruptedException {
+        bookIngestQueue.stop();
+    }
+
+    @Test
+    @DisplayName("Deve reservar um id, gravar em lote e avisar os listeners")
+    public void enqueueAndPersistTest() throws Exception {
+
+        // Given
+        bookIngestQueue = start(10, 0);
+        Book book = BookHelperTest.createBookWithNullId(1);
+
+        // When
+        Long id = bookIngestQueue.enqueue(book);
+
+        // Then
+        assertThat(id).isEqualTo(1L);
+        assertThat(waitFor(id)).isEqualTo(BookIngestStatus.persisted());
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).nextId();
+        verify(bookRepositoryMocked, times(1)).insertAllWithIds(Collections.singletonList(book));
+        verify(bookChangeListenerMocked, times(1)).bookSaved(book);
+    }
+
+    @Test
+    @DisplayName("Deve recusar ISBN ja cadastrado ou ja reservado por outro livro da fila")
+    public void rejectDuplicatedIsbnTest() throws Exception {
+
+        // Given a writer blocked on the first batch
+        bookIngestQueue = start(10, 0);
+        CountDownLatch release = blockWriter();
+        Book first = BookHelperTest.createBookWithNullId(1);
+        Book registered = BookHelperTest.createBookWithNullId(2);
+
+        given(bookIsbnFilterMocked.mightContain(registered.getIsbn())).willReturn(true);
+        given(bookRepositoryMocked.existsByIsbn(registered.getIsbn())).willReturn(true);
+
+        Long id = bookIngestQueue.enqueue(first);
+
+        // When / Then
+        assertThatThrownBy(() -> bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(1)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn ja cadastrado");
+        assertThatThrownBy(() -> bookIngestQueue.enqueue(registered))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn ja cadastrado");
+        assertThat(bookIngestQueue.status(id)).contains(BookIngestStatus.queued());
+
+        release.countDown();
+
+        assertThat(waitFor(id)).isEqualTo(BookIngestStatus.persisted());
+    }
+
+    @Test
+    @DisplayName("Deve lancar QueueFullException quando a fila estiver cheia")
+    public void queueFullTest() throws Exception {
+
+        // Given a queue of one book and the writer blocked on another
+        bookIngestQueue = start(1, 0);
+        CountDownLatch release = blockWriter();
+
+        Long writing = bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(1));
+
+        while (bookIngestQueue.size() > 0) {
+            Thread.sleep(1);
+        }
+
+        Long queued = bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(2));
+
+        // When / Then
+        assertThatThrownBy(() -> bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(3)))
+                .isInstanceOf(QueueFullException.class);
+
+        release.countDown();
+
+        assertThat(waitFor(writing)).isEqualTo(BookIngestStatus.persisted());
+        assertThat(waitFor(queued)).isEqualTo(BookIngestStatus.persisted());
+
+        // And the rejected isbn is free again
+        assertThat(waitFor(bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(3))))
+                .isEqualTo(BookIngestStatus.persisted());
+    }
+
+    @Test
+    @DisplayName("Deve gravar um a um quando o lote falha por ISBN e marcar so o duplicado")
+    public void isolateConstraintViolationTest() throws Exception {
+
+        // Given a batch where the second isbn was saved by another request
+        bookIngestQueue = start(10, 500);
+        Book book = BookHelperTest.createBookWithNullId(1);
+        Book duplicated = BookHelperTest.createBookWithNullId(2);
+
+        willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+
+            if (books.size() > 1 || books.get(0) == duplicated) {
+                throw new DataIntegrityViolationException("uk_book_isbn");
+            }
+
+            return null;
+        }).given(bookRepositoryMocked).insertAllWithIds(any());
+
+        // When
+        Long id = bookIngestQueue.enqueue(book);
+        Long duplicatedId = bookIngestQueue.enqueue(duplicated);
+
+        // Then
+        assertThat(waitFor(id)).isEqualTo(BookIngestStatus.persisted());
+        assertThat(waitFor(duplicatedId)).isEqualTo(BookIngestStatus.failed("Isbn ja cadastrado"));
+
+        verify(bookChangeListenerMocked, times(1)).bookSaved(book);
+        verify(bookRepositoryMocked, times(3)).insertAllWithIds(any());
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco quando o id nao esta mais na fila nem nos resultados")
+    public void statusFromDatabaseTest() {
+
+        bookIngestQueue = start(10, 0);
+
+        given(bookRepositoryMocked.findVersionById(7L)).willReturn(Optional.of(0L));
+        given(bookRepositoryMocked.findVersionById(8L)).willReturn(Optional.empty());
+
+        assertThat(bookIngestQueue.status(7L)).contains(BookIngestStatus.persisted());
+        assertThat(bookIngestQueue.status(8L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve recusar livros depois do stop e gravar os ja aceitos")
+    public void stopDrainsQueueTest() throws Exception {
+
+        // Given
+        bookIngestQueue = start(10, 0);
+        Long id = bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(1));
+
+        // When
+        bookIngestQueue.stop();
+
+        // Then
+        assertThat(bookIngestQueue.status(id)).contains(BookIngestStatus.persisted());
+        assertThatThrownBy(() -> bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(2)))
+                .isInstanceOf(QueueFullException.class);
+    }
+
+    @Test
+    @DisplayName("Deve marcar como FAILED e falhar o stop quando a fila nao e gravada a tempo")
+    public void stopTimeoutFailsQueuedBooksTest() throws Exception {
+
+        // Given the writer blocked on the first book and a second book queued
+        bookIngestQueue = start(10, 0, 50);
+        CountDownLatch release = blockWriter();
+
+        Long writing = bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(1));
+
+        while (bookIngestQueue.size() > 0) {
+            Thread.sleep(1);
+        }
+
+        Long queued = bookIngestQueue.enqueue(BookHelperTest.createBookWithNullId(2));
+
+        // When / Then
+        assertThatThrownBy(() -> bookIngestQueue.stop())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("1 queued books were not written before shutdown");
+        assertThat(bookIngestQueue.status(queued))
+                .contains(BookIngestStatus.failed("Livro nao gravado: aplicacao desligada"));
+
+        release.countDown();
+
+        assertThat(waitFor(writing)).isEqualTo(BookIngestStatus.persisted());
+    }
+
+    private BookIngestQueue start(int capacity, long lingerMillis) {
+        return start(capacity, lingerMillis, 5_000);
+    }
+
+    private BookIngestQueue start(int capacity, long lingerMillis, long shutdownTimeoutMillis) {
+
+        given(bookRepositoryMocked.nextId()).willAnswer(invocation -> ids.incrementAndGet());
+
+        BookIngestQueue queue = new BookIngestQueue(
+                bookRepositoryMocked,
+                bookIsbnFilterMocked,
+                Collections.singletonList(bookChangeListenerMocked),
+                capacity,
+                10,
+                lingerMillis,
+                10,
+                shutdownTimeoutMillis
+        );
+
+        queue.start();
+
+        return queue;
+    }
+
+    // o primeiro insert fica preso ate o latch ser liberado
+    private CountDownLatch blockWriter() {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(bookRepositoryMocked).insertAllWithIds(any());
+
+        return release;
+    }
+
+    private BookIngestStatus waitFor(Long id) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        BookIngestStatus status = bookIngestQueue.status(id).orElse(null);
+
+        while (status != null && status.getStatus() == BookIngestStatus.Status.QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            status = bookIngestQueue.status(id).orElse(null);
+        }
+
+        return status;
+    }
+}
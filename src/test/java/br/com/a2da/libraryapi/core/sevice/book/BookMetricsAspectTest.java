@@ -0,0 +1,88 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookMetricsAspect;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookMetricsAspectTest {
+
+    MeterRegistry meterRegistry;
+
+    BookService bookService;
+
+    @MockBean
+    BookService bookServiceMocked;
+
+    @BeforeEach
+    public void setUp() {
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(bookServiceMocked);
+        proxyFactory.addInterface(BookService.class);
+        proxyFactory.addAspect(new BookMetricsAspect(meterRegistry));
+
+        bookService = proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Deve medir o tempo do find e o tamanho do resultado")
+    public void findMetricsTest() {
+
+        // Given
+        BookQuery bookQuery = BookQuery.builder().author(BookHelperTest.MACHADO_DE_ASSIS).build();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        given(bookServiceMocked.find(bookQuery, pageRequest))
+                .willReturn(new PageImpl<>(Arrays.asList(BookHelperTest.createBook(), BookHelperTest.createBook()), pageRequest, 5));
+
+        // When
+        bookService.find(bookQuery, pageRequest);
+
+        // Then
+        assertThat(meterRegistry.get("book.service").tag("operation", "find").tag("exception", "None").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("book.find.results").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("book.find.last.total").gauge().value()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Deve contar as BusinessException por operacao")
+    public void businessExceptionMetricsTest() {
+
+        // Given
+        Book book = BookHelperTest.createBookWithNullId();
+        given(bookServiceMocked.save(book)).willThrow(new BusinessException("Isbn ja cadastrado"));
+
+        // When
+        assertThatThrownBy(() -> bookService.save(book)).isInstanceOf(BusinessException.class);
+
+        // Then
+        assertThat(meterRegistry.get("book.service.business.exceptions").tag("operation", "save").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("book.service").tag("operation", "save").tag("exception", "BusinessException").timer().count())
+                .isEqualTo(1);
+    }
+}
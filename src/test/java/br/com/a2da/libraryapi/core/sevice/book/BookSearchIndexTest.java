@@ -0,0 +1,170 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
+import br.com.a2da.libraryapi.core.service.book.BookQuery;
+import br.com.a2da.libraryapi.core.service.book.index.BookSearchIndex;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchIndexTest {
+
+    BookSearchIndex bookSearchIndex;
+
+    @MockBean
+    BookRepository bookRepositoryMocked;
+
+    @BeforeEach
+    public void setUp() {
+
+        given(bookRepositoryMocked.findByIdGreaterThan(anyLong(), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(Arrays.asList(
+                        Book.builder().id(1L).title(BookHelperTest.DOM_CASMURRO).author(BookHelperTest.MACHADO_DE_ASSIS).build(),
+                        Book.builder().id(2L).title(BookHelperTest.CAPITAES_DA_AREIA).author(BookHelperTest.JORGE_AMADO).build(),
+                        Book.builder().id(3L).title("Memórias Póstumas de Brás Cubas").author(BookHelperTest.MACHADO_DE_ASSIS).build()
+                )));
+
+        bookSearchIndex = new BookSearchIndex(bookRepositoryMocked, true);
+        bookSearchIndex.load();
+    }
+
+    @Test
+    @DisplayName("Nao deve responder buscas antes da carga inicial")
+    public void notReadyBeforeLoadTest() {
+
+        BookSearchIndex notLoaded = new BookSearchIndex(bookRepositoryMocked, true);
+
+        assertThat(notLoaded.search(new BookQuery(), Sort.unsorted())).isNull();
+
+        Mockito.verify(bookRepositoryMocked, Mockito.times(1))
+                .findByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve buscar por trecho do titulo ignorando caixa e acentos")
+    public void searchByTitleSubstringTest() {
+
+        long[] ids = bookSearchIndex.search(BookQuery.builder().title("CAPITAES").build(), Sort.unsorted());
+
+        assertThat(ids).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve combinar os filtros de titulo e autor")
+    public void searchByTitleAndAuthorTest() {
+
+        long[] ids = bookSearchIndex.search(
+                BookQuery.builder().title("s").author("machado").build(),
+                Sort.by(Sort.Direction.DESC, "id")
+        );
+
+        assertThat(ids).containsExactly(3L, 1L);
+    }
+
+    @Test
+    @DisplayName("Deve ordenar pelo titulo como gravado, igual ao ORDER BY do banco")
+    public void searchSortedByTitleTest() {
+
+        bookSearchIndex.bookSaved(Book.builder().id(4L).title("a moreninha").author("Joaquim Manuel de Macedo").build());
+
+        long[] ids = bookSearchIndex.search(BookQuery.builder().title("a").build(), Sort.by("title"));
+
+        assertThat(ids).containsExactly(2L, 1L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Nao deve responder buscas sem termos, a paginacao fica com o banco")
+    public void searchWithoutTermsTest() {
+
+        assertThat(bookSearchIndex.search(new BookQuery(), Sort.by("title"))).isNull();
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("").build(), Sort.unsorted())).isNull();
+    }
+
+    @Test
+    @DisplayName("Nao deve responder quando o sort usa propriedade fora do indice")
+    public void unsupportedSortTest() {
+
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("casmurro").build(), Sort.by("isbn"))).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve acompanhar save, update e delete")
+    public void keepInSyncTest() {
+
+        bookSearchIndex.bookSaved(Book.builder().id(4L).title("Quincas Borba").author(BookHelperTest.MACHADO_DE_ASSIS).build());
+        bookSearchIndex.bookUpdated(Book.builder().id(1L).title("Helena").author(BookHelperTest.MACHADO_DE_ASSIS).build());
+        bookSearchIndex.bookDeleted(3L);
+
+        assertThat(bookSearchIndex.search(BookQuery.builder().author("assis").build(), Sort.unsorted()))
+                .containsExactly(1L, 4L);
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("casmurro").build(), Sort.unsorted()))
+                .isEmpty();
+        assertThat(bookSearchIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve continuar respondendo depois de compactar os documentos apagados")
+    public void compactAfterUpdatesTest() {
+
+        // 2048 updates do mesmo livro: cada um apaga o documento anterior e dispara a compactacao
+        for (int i = 0; i < 2048; i++) {
+            bookSearchIndex.bookUpdated(Book.builder().id(2L).title("Tocaia Grande " + i).author(BookHelperTest.JORGE_AMADO).build());
+        }
+
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("tocaia grande 2047").build(), Sort.unsorted()))
+                .containsExactly(2L);
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("capitaes").build(), Sort.unsorted()))
+                .isEmpty();
+        assertThat(bookSearchIndex.search(BookQuery.builder().author("amado").build(), Sort.unsorted()))
+                .containsExactly(2L);
+        assertThat(bookSearchIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve manter os campos nao enviados em um update parcial")
+    public void partialUpdateTest() {
+
+        bookSearchIndex.bookUpdated(Book.builder().id(1L).title("Helena").build());
+
+        assertThat(bookSearchIndex.search(BookQuery.builder().title("helena").author("machado").build(), Sort.unsorted()))
+                .containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve buscar por prefixo ou valor exato conforme o modo")
+    public void searchByMatchModeTest() {
+
+        assertThat(bookSearchIndex.search(
+                BookQuery.builder().title("memorias").match(BookMatchMode.PREFIX).build(), Sort.unsorted()))
+                .containsExactly(3L);
+        assertThat(bookSearchIndex.search(
+                BookQuery.builder().title("casmurro").match(BookMatchMode.PREFIX).build(), Sort.unsorted()))
+                .isEmpty();
+        assertThat(bookSearchIndex.search(
+                BookQuery.builder().author("MACHADO DE ASSIS").match(BookMatchMode.EXACT).build(), Sort.unsorted()))
+                .containsExactly(1L, 3L);
+        assertThat(bookSearchIndex.search(
+                BookQuery.builder().author("machado").match(BookMatchMode.EXACT).build(), Sort.unsorted()))
+                .isEmpty();
+    }
+}
@@ -3,9 +3,20 @@ package br.com.a2da.libraryapi.core.sevice.book;
 import br.com.a2da.libraryapi.core.exception.BusinessException;
 import br.com.a2da.libraryapi.core.model.Book;
 import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookAuthorFacet;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookChangeListener;
+import br.com.a2da.libraryapi.core.service.book.BookCountMode;
+import br.com.a2da.libraryapi.core.service.book.BookMatchMode;
 import br.com.a2da.libraryapi.core.service.book.BookQuery;
 import br.com.a2da.libraryapi.core.service.book.BookService;
 import br.com.a2da.libraryapi.core.service.book.BookServiceImpl;
+import br.com.a2da.libraryapi.core.service.book.BookSingleFlight;
+import br.com.a2da.libraryapi.core.service.book.CountedPage;
+import br.com.a2da.libraryapi.core.service.book.index.BookAuthorFacets;
+import br.com.a2da.libraryapi.core.service.book.index.BookCounter;
+import br.com.a2da.libraryapi.core.service.book.index.BookIsbnFilter;
+import br.com.a2da.libraryapi.core.service.book.index.BookSearchIndex;
 import br.com.a2da.libraryapi.helperTest.BookHelperTest;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
@@ -16,13 +27,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
@@ -34,9 +53,25 @@ public class BookServiceTest {
 
     BookService bookService;
 
+    CacheManager cacheManager;
+
     @MockBean
     BookRepository bookRepositoryMocked;
 
+    @MockBean
+    BookSearchIndex bookSearchIndexMocked;
+
+    @MockBean
+    BookIsbnFilter bookIsbnFilterMocked;
+
+    @MockBean
+    BookCounter bookCounterMocked;
+
+    @MockBean
+    BookAuthorFacets bookAuthorFacetsMocked;
+
+    final BookChangeListener bookChangeListenerMocked = mock(BookChangeListener.class);
+
     final Book bookToSaveMocked = mock(Book.class);
     final Book bookSavedMocked = mock(Book.class);
     final Long ID = BookHelperTest.ID;
@@ -45,13 +80,30 @@ public class BookServiceTest {
 
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl(bookRepositoryMocked);
+        this.cacheManager = new ConcurrentMapCacheManager(BookService.BOOK_CACHE);
+        this.bookService = new BookServiceImpl(
+                bookRepositoryMocked,
+                bookSearchIndexMocked,
+                bookIsbnFilterMocked,
+                bookCounterMocked,
+                bookAuthorFacetsMocked,
+                new BookSingleFlight(),
+                cacheManager,
+                Collections.singletonList(bookChangeListenerMocked),
+                "exact",
+                2
+        );
     }
 
     @AfterEach
     public void afterEachTest() {
 
         verifyNoMoreInteractions(bookRepositoryMocked);
+        verifyNoMoreInteractions(bookSearchIndexMocked);
+        verifyNoMoreInteractions(bookIsbnFilterMocked);
+        verifyNoMoreInteractions(bookCounterMocked);
+        verifyNoMoreInteractions(bookAuthorFacetsMocked);
+        verifyNoMoreInteractions(bookChangeListenerMocked);
         verifyNoMoreInteractions(bookToSaveMocked);
         verifyNoMoreInteractions(bookSavedMocked);
         verifyNoMoreInteractions(bookQueryMocked);
@@ -65,6 +117,7 @@ public class BookServiceTest {
 
         // Expected that call
         given(bookToSaveMocked.getIsbn()).willReturn(BookHelperTest.DOM_CASMURRO_ISBN);
+        given(bookIsbnFilterMocked.mightContain(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(true);
         given(bookRepositoryMocked.existsByIsbn(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(false);
         given(bookRepositoryMocked.save(bookToSaveMocked)).willReturn(bookSavedMocked);
 
@@ -75,9 +128,11 @@ public class BookServiceTest {
         assertThat(bookSaved).isNotNull();
 
         // And verify mocks interaction
-        verify(bookToSaveMocked, times(1)).getIsbn();
+        verify(bookToSaveMocked, times(2)).getIsbn();
+        verify(bookIsbnFilterMocked, times(1)).mightContain(BookHelperTest.DOM_CASMURRO_ISBN);
         verify(bookRepositoryMocked, times(1)).existsByIsbn(BookHelperTest.DOM_CASMURRO_ISBN);
         verify(bookRepositoryMocked, times(1)).save(Mockito.any(Book.class));
+        verify(bookChangeListenerMocked, times(1)).bookSaved(bookSavedMocked);
     }
 
     @Test
@@ -88,6 +143,7 @@ public class BookServiceTest {
 
         // Expected that call existsByIsbn
         given(bookToSaveMocked.getIsbn()).willReturn(BookHelperTest.DOM_CASMURRO_ISBN);
+        given(bookIsbnFilterMocked.mightContain(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(true);
         given(bookRepositoryMocked.existsByIsbn(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(true);
 
         // When execute save
@@ -100,10 +156,57 @@ public class BookServiceTest {
                 .hasMessage("Isbn ja cadastrado");
 
         // And verify mocks interaction
-        verify(bookToSaveMocked, times(1)).getIsbn();
+        verify(bookToSaveMocked, times(2)).getIsbn();
+        verify(bookIsbnFilterMocked, times(1)).mightContain(BookHelperTest.DOM_CASMURRO_ISBN);
         verify(bookRepositoryMocked, times(1)).existsByIsbn(BookHelperTest.DOM_CASMURRO_ISBN);
     }
 
+    @Test
+    @DisplayName("Nao deve consultar o banco quando o filtro garante que o isbn nao existe")
+    public void saveBookSkippingIsbnQueryTest() {
+
+        // Expected that call
+        given(bookToSaveMocked.getIsbn()).willReturn(BookHelperTest.DOM_CASMURRO_ISBN);
+        given(bookIsbnFilterMocked.mightContain(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(false);
+        given(bookRepositoryMocked.save(bookToSaveMocked)).willReturn(bookSavedMocked);
+
+        // When execute save
+        Book bookSaved = bookService.save(bookToSaveMocked);
+
+        // Then validate save return
+        assertThat(bookSaved).isEqualTo(bookSavedMocked);
+
+        // And verify mocks interaction
+        verify(bookToSaveMocked, times(1)).getIsbn();
+        verify(bookIsbnFilterMocked, times(1)).mightContain(BookHelperTest.DOM_CASMURRO_ISBN);
+        verify(bookRepositoryMocked, times(1)).save(bookToSaveMocked);
+        verify(bookChangeListenerMocked, times(1)).bookSaved(bookSavedMocked);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negocio quando o indice unico de isbn rejeitar o insert")
+    public void saveBookWithConcurrentDuplicatedIsbnTest() {
+
+        // Expected that call
+        given(bookToSaveMocked.getIsbn()).willReturn(BookHelperTest.DOM_CASMURRO_ISBN);
+        given(bookIsbnFilterMocked.mightContain(BookHelperTest.DOM_CASMURRO_ISBN)).willReturn(false);
+        given(bookRepositoryMocked.save(bookToSaveMocked))
+                .willThrow(new DataIntegrityViolationException("uk_book_isbn"));
+
+        // When execute save
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(bookToSaveMocked));
+
+        // Then validate exception
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn ja cadastrado");
+
+        // And verify mocks interaction
+        verify(bookToSaveMocked, times(1)).getIsbn();
+        verify(bookIsbnFilterMocked, times(1)).mightContain(BookHelperTest.DOM_CASMURRO_ISBN);
+        verify(bookRepositoryMocked, times(1)).save(bookToSaveMocked);
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id")
     public void getByIdTest() {
@@ -122,6 +225,7 @@ public class BookServiceTest {
 
         // And verify mocks interaction
         verify(bookRepositoryMocked, times(1)).findById(ID);
+        verify(bookRepositoryMocked, times(1)).detach(bookSavedMocked);
     }
 
     @Test
@@ -143,6 +247,39 @@ public class BookServiceTest {
         verify(bookRepositoryMocked, times(1)).findById(ID_NOT_FOUND);
     }
 
+    @Test
+    @DisplayName("Deve obter a versao de um livro pela projecao quando ele nao estiver em cache")
+    public void findVersionByIdTest() {
+
+        // Expected that call findVersionById
+        given(bookRepositoryMocked.findVersionById(ID)).willReturn(Optional.of(2L));
+
+        // When
+        Optional<Long> version = bookService.findVersionById(ID);
+
+        // Then
+        assertThat(version).contains(2L);
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).findVersionById(ID);
+    }
+
+    @Test
+    @DisplayName("Deve obter a versao de um livro pelo cache sem consultar o banco")
+    public void findVersionByIdFromCacheTest() {
+
+        // Given a cached Book
+        Book book = BookHelperTest.createBook();
+        book.setVersion(5L);
+        cacheManager.getCache(BookService.BOOK_CACHE).put(ID, book);
+
+        // When
+        Optional<Long> version = bookService.findVersionById(ID);
+
+        // Then
+        assertThat(version).contains(5L);
+    }
+
     @Test
     @DisplayName("Deve excluir um livro")
     public void deleteBookTest() {
@@ -154,8 +291,9 @@ public class BookServiceTest {
         bookService.delete(bookSavedMocked);
 
         // Then
-        verify(bookSavedMocked, times(1)).getId();
+        verify(bookSavedMocked, times(2)).getId();
         verify(bookRepositoryMocked, times(1)).delete(bookSavedMocked);
+        verify(bookChangeListenerMocked, times(1)).bookDeleted(ID);
     }
 
     @Test
@@ -209,6 +347,7 @@ public class BookServiceTest {
         // And verify mocks interaction
         verify(bookSavedMocked, times(1)).getId();
         verify(bookRepositoryMocked, times(1)).save(bookSavedMocked);
+        verify(bookChangeListenerMocked, times(1)).bookUpdated(bookSavedMocked);
     }
 
     @Test
@@ -278,8 +417,10 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
 
         // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQueryMocked, pageRequest.getSort());
         verify(bookQueryMocked, times(1)).getAuthor();
         verify(bookQueryMocked, times(1)).getTitle();
+        verify(bookQueryMocked, times(1)).getMatch();
 
         ArgumentCaptor<Example> example = ArgumentCaptor.forClass(Example.class);
 
@@ -287,18 +428,464 @@ public class BookServiceTest {
                 example.capture(),
                 Mockito.any(PageRequest.class)
         );
+        verify(bookRepositoryMocked, times(1)).detach(bookSavedMocked);
 
         Example value = example.getValue();
 
         Book book = (Book) value.getProbe();
 
-        assertThat(book.getAuthor()).isEqualTo(BookHelperTest.MACHADO_DE_ASSIS);
-        assertThat(book.getTitle()).isEqualTo(BookHelperTest.DOM_CASMURRO);
+        assertThat(book.getAuthor()).isNull();
+        assertThat(book.getTitle()).isNull();
+        assertThat(book.getAuthorNormalized()).isEqualTo("machado de assis");
+        assertThat(book.getTitleNormalized()).isEqualTo("dom casmurro");
 
         ExampleMatcher matcher = value.getMatcher();
 
+        assertThat(matcher.isIgnoreCaseEnabled()).isFalse();
         assertThat(matcher.getDefaultStringMatcher()).isEqualTo(ExampleMatcher.StringMatcher.CONTAINING);
         assertThat(matcher.getMatchMode()).isEqualTo(ExampleMatcher.MatchMode.ALL);
         assertThat(matcher.getNullHandler()).isEqualTo(ExampleMatcher.NullHandler.IGNORE);
     }
+
+    @Test
+    @DisplayName("Deve filtrar livros pelo indice em memoria sem consultar o banco com LIKE")
+    public void findBookWithSearchIndexTest() {
+
+        // Given an index that answers the query
+        PageRequest pageRequest = PageRequest.of(1, 2);
+
+        Book firstBook = BookHelperTest.createBook(3L);
+        Book secondBook = BookHelperTest.createBook(4L);
+
+        given(bookSearchIndexMocked.search(bookQueryMocked, pageRequest.getSort()))
+                .willReturn(new long[]{1L, 2L, 3L, 4L, 5L});
+
+        given(bookRepositoryMocked.findAllById(Arrays.asList(3L, 4L)))
+                .willReturn(Arrays.asList(secondBook, firstBook));
+
+        // When execute find
+        Page<Book> result = bookService.find(bookQueryMocked, pageRequest);
+
+        // Then keeps the index order and total
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).containsExactly(firstBook, secondBook);
+
+        // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQueryMocked, pageRequest.getSort());
+        verify(bookRepositoryMocked, times(1)).findAllById(Arrays.asList(3L, 4L));
+        verify(bookRepositoryMocked, times(1)).detach(firstBook);
+        verify(bookRepositoryMocked, times(1)).detach(secondBook);
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote consultando os ISBNs de uma vez e ignorando duplicados")
+    public void saveAllTest() {
+
+        // Given a batch with a registered isbn and a repeated one
+        Book domCasmurro = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+        Book capitaesAgain = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+
+        given(bookIsbnFilterMocked.mightContain(Mockito.anyString())).willReturn(true);
+        given(bookRepositoryMocked.findIsbnsIn(Mockito.anyCollection()))
+                .willReturn(Collections.singletonList(BookHelperTest.DOM_CASMURRO_ISBN));
+
+        // When
+        List<BookBatchResult> results = bookService.saveAll(Arrays.asList(domCasmurro, capitaes, capitaesAgain));
+
+        // Then
+        assertThat(results).extracting(BookBatchResult::getStatus).containsExactly(
+                BookBatchResult.Status.DUPLICATED,
+                BookBatchResult.Status.CREATED,
+                BookBatchResult.Status.DUPLICATED
+        );
+
+        // And verify mocks interaction
+        verify(bookIsbnFilterMocked, times(3)).mightContain(Mockito.anyString());
+        verify(bookRepositoryMocked, times(1)).findIsbnsIn(Mockito.anyCollection());
+        verify(bookRepositoryMocked, times(1)).insertAll(Collections.singletonList(capitaes));
+        verify(bookChangeListenerMocked, times(1)).bookSaved(capitaes);
+    }
+
+    @Test
+    @DisplayName("Deve gravar um a um e marcar so o duplicado quando o lote falha por ISBN gravado concorrentemente")
+    public void saveAllConcurrentDuplicateTest() {
+
+        // Given a batch whose insert conflicts with another request
+        Book domCasmurro = BookHelperTest.createBookWithNullId();
+        Book capitaes = Book.builder()
+                .author(BookHelperTest.JORGE_AMADO)
+                .title(BookHelperTest.CAPITAES_DA_AREIA)
+                .isbn(BookHelperTest.CAPITAES_DA_AREIA_ISBN)
+                .build();
+
+        given(bookIsbnFilterMocked.mightContain(Mockito.anyString())).willReturn(false);
+        Mockito.doAnswer(invocation -> {
+            // o insert desfeito ja tinha atribuido id e version
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> {
+                book.setId(ID);
+                book.setVersion(0L);
+            });
+            throw new DataIntegrityViolationException("uk_book_isbn");
+        }).when(bookRepositoryMocked).insertAll(Arrays.asList(domCasmurro, capitaes));
+        Mockito.doThrow(new DataIntegrityViolationException("uk_book_isbn"))
+                .when(bookRepositoryMocked).insertAll(Collections.singletonList(domCasmurro));
+
+        // When
+        List<BookBatchResult> results = bookService.saveAll(Arrays.asList(domCasmurro, capitaes));
+
+        // Then only the conflicting book is duplicated
+        assertThat(results).extracting(BookBatchResult::getStatus).containsExactly(
+                BookBatchResult.Status.DUPLICATED,
+                BookBatchResult.Status.CREATED
+        );
+        assertThat(capitaes.getId()).isNull();
+        assertThat(capitaes.getVersion()).isNull();
+
+        // And verify mocks interaction
+        verify(bookIsbnFilterMocked, times(2)).mightContain(Mockito.anyString());
+        verify(bookRepositoryMocked, times(1)).insertAll(Arrays.asList(domCasmurro, capitaes));
+        verify(bookRepositoryMocked, times(1)).insertAll(Collections.singletonList(domCasmurro));
+        verify(bookRepositoryMocked, times(1)).insertAll(Collections.singletonList(capitaes));
+        verify(bookChangeListenerMocked, times(1)).bookSaved(capitaes);
+    }
+
+    @Test
+    @DisplayName("Deve exportar todos os livros descartando cada um do contexto de persistencia")
+    public void exportTest() {
+
+        // Given a catalog with two books
+        Book domCasmurro = BookHelperTest.createBook();
+        Book otherBook = BookHelperTest.createBook(BookHelperTest.ID_NOT_FOUND);
+
+        given(bookRepositoryMocked.streamAll()).willReturn(Stream.of(domCasmurro, otherBook));
+
+        // When
+        List<Book> exported = new ArrayList<>();
+        bookService.export(exported::add);
+
+        // Then
+        assertThat(exported).containsExactly(domCasmurro, otherBook);
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).streamAll();
+        verify(bookRepositoryMocked, times(1)).detach(domCasmurro);
+        verify(bookRepositoryMocked, times(1)).detach(otherBook);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o patch e avisar os listeners com o livro parcial")
+    public void patchTest() {
+
+        // Given
+        Book changes = Book.builder().id(BookHelperTest.ID).version(3L).title(BookHelperTest.CAPITAES_DA_AREIA).build();
+        given(bookRepositoryMocked.patch(changes)).willReturn(1);
+
+        // When
+        Optional<Long> version = bookService.patch(changes);
+
+        // Then
+        assertThat(version).contains(4L);
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).patch(changes);
+        verify(bookChangeListenerMocked, times(1)).bookUpdated(
+                Book.builder().id(BookHelperTest.ID).version(4L).title(BookHelperTest.CAPITAES_DA_AREIA).build()
+        );
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio no patch de livro inexistente")
+    public void patchNotFoundTest() {
+
+        // Given
+        Book changes = Book.builder().id(BookHelperTest.ID_NOT_FOUND).version(3L).title(BookHelperTest.CAPITAES_DA_AREIA).build();
+        given(bookRepositoryMocked.patch(changes)).willReturn(0);
+        given(bookRepositoryMocked.existsById(BookHelperTest.ID_NOT_FOUND)).willReturn(false);
+
+        // When
+        Optional<Long> version = bookService.patch(changes);
+
+        // Then
+        assertThat(version).isEmpty();
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).patch(changes);
+        verify(bookRepositoryMocked, times(1)).existsById(BookHelperTest.ID_NOT_FOUND);
+    }
+
+    @Test
+    @DisplayName("Deve lancar conflito no patch com versao desatualizada")
+    public void patchConflictTest() {
+
+        // Given
+        Book changes = Book.builder().id(BookHelperTest.ID).version(2L).title(BookHelperTest.CAPITAES_DA_AREIA).build();
+        given(bookRepositoryMocked.patch(changes)).willReturn(0);
+        given(bookRepositoryMocked.existsById(BookHelperTest.ID)).willReturn(true);
+
+        // When
+        Throwable exception = Assertions.catchThrowable(() -> bookService.patch(changes));
+
+        // Then
+        assertThat(exception).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).patch(changes);
+        verify(bookRepositoryMocked, times(1)).existsById(BookHelperTest.ID);
+    }
+
+    @Test
+    @DisplayName("Deve deletar pelo id sem carregar o livro")
+    public void deleteByIdTest() {
+
+        // Given
+        given(bookRepositoryMocked.deleteBookById(ID)).willReturn(1);
+        given(bookRepositoryMocked.deleteBookById(BookHelperTest.ID_NOT_FOUND)).willReturn(0);
+
+        // When
+        boolean deleted = bookService.deleteById(ID);
+        boolean notFound = bookService.deleteById(BookHelperTest.ID_NOT_FOUND);
+
+        // Then
+        assertThat(deleted).isTrue();
+        assertThat(notFound).isFalse();
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).deleteBookById(ID);
+        verify(bookRepositoryMocked, times(1)).deleteBookById(BookHelperTest.ID_NOT_FOUND);
+        verify(bookChangeListenerMocked, times(1)).bookDeleted(ID);
+    }
+
+    @Test
+    @DisplayName("Deve deletar em massa um bloco de ids por comando")
+    public void deleteAllByIdTest() {
+
+        // Given
+        given(bookRepositoryMocked.deleteAllExistingById(Arrays.asList(ID, BookHelperTest.ID_NOT_FOUND)))
+                .willReturn(Collections.singletonList(ID));
+
+        // When
+        int deleted = bookService.deleteAllById(Arrays.asList(ID, BookHelperTest.ID_NOT_FOUND, ID));
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+
+        // And verify mocks interaction: only the existing id is notified
+        verify(bookRepositoryMocked, times(1)).deleteAllExistingById(Arrays.asList(ID, BookHelperTest.ID_NOT_FOUND));
+        verify(bookChangeListenerMocked, times(1)).bookDeleted(ID);
+    }
+
+    @Test
+    @DisplayName("Deve usar o contador em memoria como total da busca sem filtros")
+    public void findWithEstimatedTotalTest() {
+
+        // Given a full page from the database
+        BookQuery bookQuery = new BookQuery();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        List<Book> content = Arrays.asList(BookHelperTest.createBook(1L), BookHelperTest.createBook(2L));
+
+        given(bookRepositoryMocked.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest))).willReturn(content);
+        given(bookCounterMocked.isReady()).willReturn(true);
+        given(bookCounterMocked.total()).willReturn(42L);
+
+        // When
+        Page<Book> result = bookService.find(bookQuery, pageRequest, BookCountMode.ESTIMATED);
+
+        // Then
+        assertThat(result.getTotalElements()).isEqualTo(42);
+        assertThat(CountedPage.totalTypeOf(result)).isEqualTo(BookCountMode.ESTIMATED);
+
+        // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, pageRequest.getSort());
+        verify(bookRepositoryMocked, times(1)).findContent(Mockito.any(Example.class), Mockito.eq(pageRequest));
+        verify(bookRepositoryMocked, times(2)).detach(Mockito.any(Book.class));
+        verify(bookCounterMocked, times(1)).isReady();
+        verify(bookCounterMocked, times(1)).total();
+    }
+
+    @Test
+    @DisplayName("Deve limitar o total filtrado quando passa do teto")
+    public void findWithCappedTotalTest() {
+
+        // Given a filtered search with more matches than the cap
+        BookQuery bookQuery = BookQuery.builder().author(BookHelperTest.MACHADO_DE_ASSIS).build();
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        given(bookRepositoryMocked.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .willReturn(Collections.singletonList(BookHelperTest.createBook()));
+        given(bookRepositoryMocked.countUpTo(Mockito.any(Example.class), Mockito.eq(2L))).willReturn(3L);
+
+        // When
+        Page<Book> result = bookService.find(bookQuery, pageRequest, BookCountMode.CAPPED);
+
+        // Then
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(CountedPage.totalTypeOf(result)).isEqualTo(BookCountMode.CAPPED);
+
+        // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, pageRequest.getSort());
+        verify(bookRepositoryMocked, times(1)).findContent(Mockito.any(Example.class), Mockito.eq(pageRequest));
+        verify(bookRepositoryMocked, times(1)).countUpTo(Mockito.any(Example.class), Mockito.eq(2L));
+        verify(bookRepositoryMocked, times(1)).detach(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar o count filtrado em cache como estimativa")
+    public void findWithCachedEstimateTest() {
+
+        // Given a filtered search already counted
+        BookQuery bookQuery = BookQuery.builder().author(BookHelperTest.MACHADO_DE_ASSIS).build();
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        given(bookRepositoryMocked.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .willReturn(Collections.singletonList(BookHelperTest.createBook()));
+        given(bookCounterMocked.estimate(bookQuery)).willReturn(7L);
+
+        // When
+        Page<Book> result = bookService.find(bookQuery, pageRequest, BookCountMode.ESTIMATED);
+
+        // Then
+        assertThat(result.getTotalElements()).isEqualTo(7);
+        assertThat(CountedPage.totalTypeOf(result)).isEqualTo(BookCountMode.ESTIMATED);
+
+        // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, pageRequest.getSort());
+        verify(bookRepositoryMocked, times(1)).findContent(Mockito.any(Example.class), Mockito.eq(pageRequest));
+        verify(bookRepositoryMocked, times(1)).detach(Mockito.any(Book.class));
+        verify(bookCounterMocked, times(1)).estimate(bookQuery);
+    }
+
+    @Test
+    @DisplayName("Deve buscar por prefixo nas colunas normalizadas")
+    public void findBookByPrefixTest() {
+
+        // Given a prefix query with accents and upper case
+        BookQuery bookQuery = BookQuery.builder().title("CAPITÃES").match(BookMatchMode.PREFIX).build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        given(bookRepositoryMocked.findAll(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .willReturn(new PageImpl<>(Collections.emptyList(), pageRequest, 0));
+
+        // When
+        bookService.find(bookQuery, pageRequest);
+
+        // Then the probe is normalized and the matcher is a range-friendly "starts with"
+        ArgumentCaptor<Example> example = ArgumentCaptor.forClass(Example.class);
+
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, pageRequest.getSort());
+        verify(bookRepositoryMocked, times(1)).findAll(example.capture(), Mockito.eq(pageRequest));
+
+        Book book = (Book) example.getValue().getProbe();
+
+        assertThat(book.getTitleNormalized()).isEqualTo("capitaes");
+        assertThat(book.getAuthorNormalized()).isNull();
+        assertThat(example.getValue().getMatcher().getDefaultStringMatcher())
+                .isEqualTo(ExampleMatcher.StringMatcher.STARTING);
+    }
+
+    @Test
+    @DisplayName("Deve retornar os totais por autor do catalogo inteiro sem ir ao banco")
+    public void findAuthorFacetsTest() {
+
+        // Given
+        List<BookAuthorFacet> facets = Collections.singletonList(new BookAuthorFacet(BookHelperTest.MACHADO_DE_ASSIS, 2));
+
+        given(bookAuthorFacetsMocked.top(null, "mach", 10)).willReturn(facets);
+
+        // When
+        List<BookAuthorFacet> result = bookService.findAuthorFacets(new BookQuery(), "mach", 10);
+
+        // Then
+        assertThat(result).isSameAs(facets);
+
+        // And verify mocks interaction
+        verify(bookAuthorFacetsMocked, times(1)).top(null, "mach", 10);
+    }
+
+    @Test
+    @DisplayName("Deve restringir os totais por autor aos livros encontrados pela busca")
+    public void findAuthorFacetsFilteredTest() {
+
+        // Given
+        BookQuery bookQuery = BookQuery.builder().title("dom").build();
+        long[] ids = {1L, 3L};
+        List<BookAuthorFacet> facets = Collections.singletonList(new BookAuthorFacet(BookHelperTest.MACHADO_DE_ASSIS, 2));
+
+        given(bookSearchIndexMocked.search(bookQuery, Sort.unsorted())).willReturn(ids);
+        given(bookAuthorFacetsMocked.top(ids, null, 10)).willReturn(facets);
+
+        // When
+        List<BookAuthorFacet> result = bookService.findAuthorFacets(bookQuery, null, 10);
+
+        // Then
+        assertThat(result).isSameAs(facets);
+
+        // And verify mocks interaction
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, Sort.unsorted());
+        verify(bookAuthorFacetsMocked, times(1)).top(ids, null, 10);
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por autor no banco enquanto o indice nao esta pronto")
+    @SuppressWarnings("unchecked")
+    public void findAuthorFacetsFromDatabaseTest() {
+
+        // Given a search index still loading
+        BookQuery bookQuery = BookQuery.builder().author("Machado").build();
+        List<BookAuthorFacet> facets = Collections.singletonList(new BookAuthorFacet(BookHelperTest.MACHADO_DE_ASSIS, 2));
+
+        given(bookSearchIndexMocked.search(bookQuery, Sort.unsorted())).willReturn(null);
+        given(bookRepositoryMocked.countByAuthor(Mockito.any(Example.class), Mockito.eq("mac"), Mockito.eq(10))).willReturn(facets);
+
+        // When
+        List<BookAuthorFacet> result = bookService.findAuthorFacets(bookQuery, "MAC", 10);
+
+        // Then
+        assertThat(result).isSameAs(facets);
+
+        // And verify mocks interaction
+        ArgumentCaptor<Example> example = ArgumentCaptor.forClass(Example.class);
+
+        verify(bookSearchIndexMocked, times(1)).search(bookQuery, Sort.unsorted());
+        verify(bookRepositoryMocked, times(1)).countByAuthor(example.capture(), Mockito.eq("mac"), Mockito.eq(10));
+
+        assertThat(((Book) example.getValue().getProbe()).getAuthorNormalized()).isEqualTo("machado");
+    }
+
+    @Test
+    @DisplayName("Deve buscar varios livros por id usando o cache e o banco")
+    public void findAllByIdTest() {
+
+        // Given one cached Book and one only in the database
+        Book cachedBook = BookHelperTest.createBook(1L);
+        Book storedBook = BookHelperTest.createBook(2L);
+        cacheManager.getCache(BookService.BOOK_CACHE).put(1L, cachedBook);
+
+        given(bookRepositoryMocked.findAllById(Arrays.asList(3L, 2L)))
+                .willReturn(Collections.singletonList(storedBook));
+
+        // When
+        Map<Long, Book> booksById = bookService.findAllById(Arrays.asList(3L, 2L, 1L, 2L));
+
+        // Then in request order, without the missing id
+        assertThat(booksById.keySet()).containsExactly(2L, 1L);
+        assertThat(booksById.get(1L)).isSameAs(cachedBook);
+        assertThat(booksById.get(2L)).isSameAs(storedBook);
+
+        // And the loaded Book is now cached
+        assertThat(cacheManager.getCache(BookService.BOOK_CACHE).get(2L, Book.class)).isSameAs(storedBook);
+
+        // And verify mocks interaction
+        verify(bookRepositoryMocked, times(1)).findAllById(Arrays.asList(3L, 2L));
+        verify(bookRepositoryMocked, times(1)).detach(storedBook);
+    }
 }
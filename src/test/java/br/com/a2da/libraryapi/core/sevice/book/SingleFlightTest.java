@@ -0,0 +1,111 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.exception.BusinessException;
+import br.com.a2da.libraryapi.core.service.book.SingleFlight;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SingleFlightTest {
+
+    @Test
+    @DisplayName("Deve executar uma vez para chamadas concorrentes com a mesma chave")
+    public void coalesceConcurrentCallsTest() throws Exception {
+
+        // Given a slow call and many concurrent callers
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "book";
+            })));
+
+            started.await(5, TimeUnit.SECONDS);
+
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    executions.incrementAndGet();
+                    return "other";
+                })));
+            }
+
+            // When the followers are waiting on the first call
+            while (singleFlight.getCoalesced() < callers - 1) {
+                Thread.sleep(1);
+            }
+
+            release.countDown();
+
+            // Then
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("book");
+            }
+
+            assertThat(executions.get()).isEqualTo(1);
+            assertThat(singleFlight.getExecuted()).isEqualTo(1);
+            assertThat(singleFlight.getCoalesced()).isEqualTo(callers - 1);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve executar de novo depois que a chamada anterior terminou")
+    public void noCachingTest() {
+
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute(1L, executions::incrementAndGet);
+        singleFlight.execute(1L, executions::incrementAndGet);
+        singleFlight.execute(2L, executions::incrementAndGet);
+
+        assertThat(executions.get()).isEqualTo(3);
+        assertThat(singleFlight.getCoalesced()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve propagar a excecao e liberar a chave")
+    public void failureTest() {
+
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+        assertThatThrownBy(() -> singleFlight.execute(1L, () -> {
+            throw new BusinessException("falhou");
+        })).isInstanceOf(BusinessException.class);
+
+        assertThat(singleFlight.execute(1L, () -> "book")).isEqualTo("book");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
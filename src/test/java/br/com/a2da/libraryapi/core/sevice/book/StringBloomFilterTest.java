@@ -0,0 +1,64 @@
+package br.com.a2da.libraryapi.core.sevice.book;
+
+import br.com.a2da.libraryapi.core.service.book.index.StringBloomFilter;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class StringBloomFilterTest {
+
+    @Test
+    @DisplayName("Deve sempre encontrar os valores inseridos")
+    public void noFalseNegativesTest() {
+
+        StringBloomFilter filter = StringBloomFilter.create(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("isbn-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("isbn-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve manter a taxa de falso positivo perto da configurada")
+    public void falsePositiveRateTest() {
+
+        StringBloomFilter filter = StringBloomFilter.create(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("isbn-" + i);
+        }
+
+        int falsePositives = 0;
+
+        for (int i = 10_000; i < 20_000; i++) {
+            if (filter.mightContain("isbn-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.001, 0.03);
+        assertThat(filter.memoryBytes()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Filtro vazio nao contem nenhum valor")
+    public void emptyFilterTest() {
+
+        StringBloomFilter filter = StringBloomFilter.create(100, 0.01);
+
+        assertThat(filter.mightContain(BookHelperTest.DOM_CASMURRO_ISBN)).isFalse();
+        assertThat(filter.expectedFalsePositiveRate()).isEqualTo(0.0);
+    }
+}
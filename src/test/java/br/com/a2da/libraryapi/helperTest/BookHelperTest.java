@@ -41,6 +41,17 @@ public class BookHelperTest {
                 .build();
     }
 
+    // livros distintos (isbn unico por sequence) para carga e testes de volume
+    public static Book createBookWithNullId(int sequence) {
+        boolean machado = sequence % 2 == 0;
+
+        return Book.builder()
+                .author(machado ? MACHADO_DE_ASSIS : JORGE_AMADO)
+                .title((machado ? DOM_CASMURRO : CAPITAES_DA_AREIA) + " " + sequence)
+                .isbn(String.format("%013d", sequence))
+                .build();
+    }
+
     static BookDTO createNewBookDTO(String author, String title, String isbn) {
         return BookDTO.builder()
                 .author(author)
@@ -0,0 +1,472 @@
+package br.com.a2da.libraryapi.load;
+
+import br.com.a2da.libraryapi.api.controller.book.BookForm;
+import br.com.a2da.libraryapi.api.controller.book.BookPatchForm;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.service.book.BookBatchResult;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.helperTest.BookHelperTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * Teste de carga da API de livros: sobe a aplicacao em porta aleatoria (H2 em memoria),
+ * cadastra load.books livros e roda cada cenario de BookLoadWorkload com load.concurrency
+ * clientes por load.duration-seconds, depois de load.warmup-seconds de aquecimento.
+ *
+ * Fora do build normal (@Tag("load")): mvn -P load test -Dload.books=10000 ...
+ * O relatorio (req/s e p50/p95/p99/p99.9 por operacao) vai para o log e para
+ * load.report-dir/<workload>.txt, para comparar versoes antes de publicar.
+ *
+ * O controle de admissao fica ligado sem client-header (todos os workers saem do mesmo IP,
+ * entao sem rate limit por cliente); respostas 503 dele aparecem na coluna shed e nao
+ * contam como erro.
+ *
+ * A latencia e a da operacao vista pelo cliente; PATCH inclui o GET do ETag e um DELETE
+ * sem livros criados no teste cria um antes.
+ * */
+@Slf4j
+@Tag("load")
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "library.admission.enabled=true",
+        "library.admission.client-header="
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BookApiLoadTest {
+
+    private static final String BOOK_API = "/api/books";
+    private static final int SEED_CHUNK_SIZE = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int LOOKUP_SIZE = 50;
+    private static final int BATCH_SIZE = 20;
+    private static final int IMPORT_SIZE = 100;
+    private static final int BULK_DELETE_SIZE = 10;
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    private final int books = Integer.getInteger("load.books", 10_000);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int warmupSeconds = Integer.getInteger("load.warmup-seconds", 5);
+    private final int durationSeconds = Integer.getInteger("load.duration-seconds", 30);
+    private final Set<String> workloads = new HashSet<>(Arrays.asList(
+            System.getProperty("load.workloads", "read-heavy,write-heavy,search-heavy").split(",")
+    ));
+    private final String reportDir = System.getProperty("load.report-dir", "target/load-results");
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private long[] seededIds;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeAll
+    public void setUp() {
+
+        httpClient = HttpClients.custom()
+                .setMaxConnTotal(concurrency)
+                .setMaxConnPerRoute(concurrency)
+                .disableAutomaticRetries()
+                .build();
+
+        restTemplate = new RestTemplateBuilder()
+                .rootUri("http://localhost:" + port)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .errorHandler(new StatusOnlyErrorHandler())
+                .build();
+
+        seed();
+    }
+
+    @AfterAll
+    public void tearDown() throws IOException {
+        httpClient.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookLoadWorkload.class)
+    @DisplayName("Carga HTTP por cenario com percentis de latencia")
+    public void loadTest(BookLoadWorkload workload) throws Exception {
+
+        assumeTrue(workloads.contains(workload.getName()), "cenario fora de load.workloads");
+
+        BookLoadReport report = new BookLoadReport();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+        try {
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long deadline = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            List<Future<?>> workers = new ArrayList<>(concurrency);
+
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> run(workload, report, deadline)));
+            }
+
+            // o aquecimento roda com a mesma carga, mas nao entra no relatorio
+            TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+            report.reset();
+            long measuredFrom = System.nanoTime();
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+
+            report.finish(System.nanoTime() - measuredFrom);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String text = report.format(workload, concurrency, books);
+
+        log.info("\n{}", text);
+        report.write(Paths.get(reportDir, workload.getName() + ".txt"), text);
+
+        assertThat(report.getRequests()).isPositive();
+        assertThat(report.getErrorRate()).isLessThan(MAX_ERROR_RATE);
+    }
+
+    private void run(BookLoadWorkload workload, BookLoadReport report, long deadline) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+
+            BookLoadOperation operation = workload.next(random);
+            long start = System.nanoTime();
+            BookLoadOutcome outcome;
+
+            try {
+                outcome = execute(operation, random);
+            } catch (RuntimeException ex) {
+                outcome = BookLoadOutcome.ERROR;
+            }
+
+            report.record(operation, System.nanoTime() - start, outcome);
+        }
+    }
+
+    private BookLoadOutcome execute(BookLoadOperation operation, ThreadLocalRandom random) {
+
+        switch (operation) {
+
+            case SHOW:
+                return expect(get(BOOK_API + "/" + seededId(random)), HttpStatus.OK);
+
+            case FIND:
+                return expect(get(BOOK_API + "?size=" + PAGE_SIZE + "&sort=id&page=" + random.nextInt(Math.max(1, books / PAGE_SIZE))), HttpStatus.OK);
+
+            case SEARCH:
+                return expect(get(searchUri(random)), HttpStatus.OK);
+
+            case CURSOR:
+                return expect(get(BOOK_API + "?cursor=&size=" + PAGE_SIZE + "&sort=title,asc"), HttpStatus.OK);
+
+            case LOOKUP:
+                return expect(get(BOOK_API + "?ids=" + join(randomSeededIds(random, LOOKUP_SIZE))), HttpStatus.OK);
+
+            case EXPORT:
+                return expect(get(BOOK_API + "/export?format=ndjson"), HttpStatus.OK);
+
+            case CREATE:
+                return create();
+
+            case BATCH:
+                return expect(send(HttpMethod.POST, BOOK_API + "/batch", MediaType.APPLICATION_JSON, newBookForms(BATCH_SIZE)), HttpStatus.OK);
+
+            case IMPORT:
+                return expect(send(HttpMethod.POST, BOOK_API + "/import", MediaType.valueOf("application/x-ndjson"), ndjson(IMPORT_SIZE)), HttpStatus.OK);
+
+            case UPDATE:
+                return expect(send(HttpMethod.PUT, BOOK_API + "/" + seededId(random), MediaType.APPLICATION_JSON, newBookForm()), HttpStatus.OK);
+
+            case PATCH:
+                return patch(seededId(random));
+
+            case DELETE:
+                return delete();
+
+            case BULK_DELETE:
+                return bulkDelete();
+
+            default:
+                throw new IllegalStateException(operation.name());
+        }
+    }
+
+    private BookLoadOutcome create() {
+
+        ResponseEntity<byte[]> response = send(HttpMethod.POST, BOOK_API, MediaType.APPLICATION_JSON, newBookForm());
+        BookLoadOutcome outcome = expect(response, HttpStatus.CREATED);
+
+        if (outcome != BookLoadOutcome.OK) {
+            return outcome;
+        }
+
+        createdIds.add(readId(response.getBody()));
+
+        return BookLoadOutcome.OK;
+    }
+
+    private BookLoadOutcome patch(long id) {
+
+        ResponseEntity<byte[]> current = get(BOOK_API + "/" + id);
+        BookLoadOutcome outcome = expect(current, HttpStatus.OK);
+
+        if (outcome != BookLoadOutcome.OK) {
+            return outcome;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setIfMatch(current.getHeaders().getETag());
+
+        ResponseEntity<byte[]> response = exchange(HttpMethod.PATCH, BOOK_API + "/" + id, headers,
+                BookPatchForm.builder().title(newTitle()).build());
+
+        return expect(response, HttpStatus.NO_CONTENT);
+    }
+
+    private BookLoadOutcome delete() {
+
+        Long id = createdIds.poll();
+
+        if (id == null) {
+
+            BookLoadOutcome created = create();
+
+            if (created != BookLoadOutcome.OK) {
+                return created;
+            }
+
+            id = createdIds.poll();
+        }
+
+        // outro worker pode ter levado o livro criado acima
+        if (id == null) {
+            return BookLoadOutcome.CONFLICT;
+        }
+
+        return expect(exchange(HttpMethod.DELETE, BOOK_API + "/" + id, new HttpHeaders(), null), HttpStatus.NO_CONTENT);
+    }
+
+    private BookLoadOutcome bulkDelete() {
+
+        List<Long> ids = new ArrayList<>(BULK_DELETE_SIZE);
+        Long id;
+
+        while (ids.size() < BULK_DELETE_SIZE && (id = createdIds.poll()) != null) {
+            ids.add(id);
+        }
+
+        // sem livros criados no teste: ids inexistentes, que o endpoint ignora
+        if (ids.isEmpty()) {
+            ids.add(-1L);
+        }
+
+        return expect(exchange(HttpMethod.DELETE, BOOK_API + "?ids=" + join(ids), new HttpHeaders(), null), HttpStatus.OK);
+    }
+
+    private void seed() {
+
+        List<Long> ids = new ArrayList<>(books);
+
+        for (int from = 0; from < books; from += SEED_CHUNK_SIZE) {
+
+            List<Book> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+
+            for (int i = from; i < Math.min(from + SEED_CHUNK_SIZE, books); i++) {
+                chunk.add(BookHelperTest.createBookWithNullId(i));
+            }
+
+            for (BookBatchResult result : bookService.saveAll(chunk)) {
+                if (result.getStatus() == BookBatchResult.Status.CREATED) {
+                    ids.add(result.getBook().getId());
+                }
+            }
+        }
+
+        seededIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        log.info("Load test seeded {} books", seededIds.length);
+    }
+
+    private String searchUri(ThreadLocalRandom random) {
+
+        switch (random.nextInt(3)) {
+            case 0:
+                return BOOK_API + "?size=" + PAGE_SIZE + "&match=prefix&title=" + "Dom Casmurro " + random.nextInt(10);
+            case 1:
+                return BOOK_API + "?size=" + PAGE_SIZE + "&match=exact&author=" + BookHelperTest.JORGE_AMADO;
+            default:
+                return BOOK_API + "?size=" + PAGE_SIZE + "&title=" + "areia " + random.nextInt(100);
+        }
+    }
+
+    private long seededId(ThreadLocalRandom random) {
+        return seededIds[random.nextInt(seededIds.length)];
+    }
+
+    private List<Long> randomSeededIds(ThreadLocalRandom random, int size) {
+
+        List<Long> ids = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            ids.add(seededId(random));
+        }
+
+        return ids;
+    }
+
+    private BookForm newBookForm() {
+
+        long next = sequence.incrementAndGet();
+
+        return BookForm.builder()
+                .title(BookHelperTest.CAPITAES_DA_AREIA + " " + next)
+                .author(BookHelperTest.JORGE_AMADO)
+                .isbn("load-" + next)
+                .build();
+    }
+
+    private List<BookForm> newBookForms(int size) {
+
+        List<BookForm> bookForms = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            bookForms.add(newBookForm());
+        }
+
+        return bookForms;
+    }
+
+    private String ndjson(int size) {
+
+        StringBuilder body = new StringBuilder();
+
+        for (BookForm bookForm : newBookForms(size)) {
+            body.append(write(bookForm)).append('\n');
+        }
+
+        return body.toString();
+    }
+
+    private String newTitle() {
+        return BookHelperTest.DOM_CASMURRO + " " + sequence.incrementAndGet();
+    }
+
+    private ResponseEntity<byte[]> get(String uri) {
+        return exchange(HttpMethod.GET, uri, new HttpHeaders(), null);
+    }
+
+    private ResponseEntity<byte[]> send(HttpMethod method, String uri, MediaType contentType, Object body) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+
+        return exchange(method, uri, headers, body);
+    }
+
+    private ResponseEntity<byte[]> exchange(HttpMethod method, String uri, HttpHeaders headers, Object body) {
+
+        Object payload = body == null || body instanceof String ? body : write(body);
+
+        // expand aplica o rootUri e codifica a query (espacos nos filtros de titulo/autor)
+        URI url = restTemplate.getUriTemplateHandler().expand(uri);
+
+        return restTemplate.exchange(new RequestEntity<>(payload, headers, method, url), byte[].class);
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private long readId(byte[] body) {
+        try {
+            return objectMapper.readTree(body).get("id").asLong();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static BookLoadOutcome expect(ResponseEntity<byte[]> response, HttpStatus expected) {
+
+        HttpStatus status = response.getStatusCode();
+
+        if (status == expected) {
+            return BookLoadOutcome.OK;
+        }
+
+        if (status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.SERVICE_UNAVAILABLE) {
+            return BookLoadOutcome.SHED;
+        }
+
+        return status == HttpStatus.CONFLICT || status == HttpStatus.PRECONDITION_FAILED
+                ? BookLoadOutcome.CONFLICT
+                : BookLoadOutcome.ERROR;
+    }
+
+    private static String join(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    // o status de cada resposta e classificado pelo teste, sem excecao do RestTemplate
+    private static class StatusOnlyErrorHandler implements ResponseErrorHandler {
+
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package br.com.a2da.libraryapi.load;
+
+import br.com.a2da.libraryapi.LibraryApiApplication;
+import br.com.a2da.libraryapi.core.model.Book;
+import br.com.a2da.libraryapi.core.repository.BookRepository;
+import br.com.a2da.libraryapi.core.service.book.BookHotSet;
+import br.com.a2da.libraryapi.core.service.book.BookService;
+import br.com.a2da.libraryapi.core.service.book.index.BookCounter;
+import br.com.a2da.libraryapi.core.service.book.index.BookSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Benchmark do profile "file": monta (uma vez) um catalogo de load.restart.books livros em
+ * H2 em arquivo e mede duas subidas da aplicacao sobre ele:
+ *
+ * - cold: sem arquivo de conjunto quente;
+ * - warm: com o conjunto quente gravado no shutdown da subida anterior (BookHotSet).
+ *
+ * Para cada uma: tempo ate o ApplicationReadyEvent, tempo ate o warm-up terminar (conjunto
+ * quente, BookCounter e, se ligado, BookSearchIndex) e latencia (p50/p95/p99/p99.9) de
+ * findById pelo service (cache + banco), findById direto no repositorio (paginas do H2)
+ * e busca por prefixo na coluna normalizada. 90% dos acessos vao para os primeiros
+ * load.restart.hot-books ids.
+ *
+ * Fora do build normal (@Tag("load")):
+ * mvn -P load test -Dtest=BookFileRestartBenchmarkTest -Dload.restart.books=10000000
+ *
+ * As duas subidas rodam na mesma JVM e com o cache de disco do SO quente: a diferenca entre
+ * elas e a do cache da aplicacao e do cache de paginas do H2. O catalogo fica em
+ * load.restart.dir e so e recriado com -Dload.restart.rebuild=true ou outro tamanho.
+ * */
+@Slf4j
+@Tag("load")
+public class BookFileRestartBenchmarkTest {
+
+    private static final long READY_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(60);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int INSERT_CHUNK_SIZE = 500_000;
+    private static final int PAGE_SIZE = 20;
+
+    private final long books = Long.getLong("load.restart.books", 10_000_000L);
+    private final long hotBooks = Long.getLong("load.restart.hot-books", 100_000L);
+    private final int queries = Integer.getInteger("load.restart.queries", 20_000);
+    private final Path directory = Paths.get(System.getProperty("load.restart.dir", "target/load-h2"));
+    private final String cacheSizeKb = System.getProperty("load.restart.cache-size-kb", "262144");
+    private final String searchIndex = System.getProperty("load.restart.search-index", "false");
+    private final boolean rebuild = Boolean.getBoolean("load.restart.rebuild");
+    private final String reportDir = System.getProperty("load.report-dir", "target/load-results");
+
+    @Test
+    public void restartBenchmarkTest() throws Exception {
+
+        Path database = directory.resolve("library");
+        Path dataFile = directory.resolve("library.mv.db");
+        Path sizeFile = directory.resolve("books.count");
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+
+        if (rebuild || !Files.exists(dataFile) || !String.valueOf(books).equals(readSize(sizeFile))) {
+
+            long buildMillis = build(database);
+
+            Files.write(sizeFile, String.valueOf(books).getBytes(StandardCharsets.UTF_8));
+            out.printf("build: %d books in %d ms%n", books, buildMillis);
+        }
+
+        out.printf("books=%d hot-books=%d queries=%d cache-size-kb=%s search-index=%s data-file=%d MB%n",
+                books, hotBooks, queries, cacheSizeKb, searchIndex, Files.size(dataFile) / (1024 * 1024));
+
+        Files.deleteIfExists(hotSetFile(database));
+
+        run("cold", database, out);
+        run("warm", database, out);
+
+        out.flush();
+
+        log.info("\n{}", text);
+
+        Path report = Paths.get(reportDir, "restart.txt");
+        Files.createDirectories(report.getParent());
+        Files.write(report, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertThat(Files.exists(hotSetFile(database))).isTrue();
+    }
+
+    /*
+     * Cria o schema subindo a aplicacao uma vez e insere os livros direto por SQL
+     * (SYSTEM_RANGE), bem mais rapido que pela API para milhoes de linhas.
+     * */
+    private long build(Path database) throws IOException, SQLException {
+
+        long start = System.nanoTime();
+
+        FileSystemUtils.deleteRecursively(directory);
+        Files.createDirectories(directory);
+
+        start(database).close();
+
+        try (Connection connection = DriverManager.getConnection(jdbcUrl(database), "sa", "")) {
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into book (id, title, author, isbn, version, title_normalized, author_normalized) "
+                            + "select x, 'Livro ' || x, "
+                            + "casewhen(mod(x, 2) = 0, 'Machado de Assis', 'Jorge Amado'), "
+                            + "lpad(cast(x as varchar), 13, '0'), 0, 'livro ' || x, "
+                            + "casewhen(mod(x, 2) = 0, 'machado de assis', 'jorge amado') "
+                            + "from system_range(?, ?)")) {
+
+                for (long from = 1; from <= books; from += INSERT_CHUNK_SIZE) {
+                    insert.setLong(1, from);
+                    insert.setLong(2, Math.min(from + INSERT_CHUNK_SIZE - 1, books));
+                    insert.executeUpdate();
+                    connection.commit();
+                }
+            }
+
+            // book_seq e pooled (blocos de 50): o proximo bloco comeca depois dos ids gerados aqui
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("alter sequence book_seq restart with " + (books + 51));
+            }
+
+            connection.commit();
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private void run(String phase, Path database, PrintWriter out) throws InterruptedException {
+
+        long start = System.nanoTime();
+
+        try (ConfigurableApplicationContext context = start(database)) {
+
+            long readyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            waitForWarmUp(context);
+
+            long warmMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            BookService bookService = context.getBean(BookService.class);
+            BookRepository bookRepository = context.getBean(BookRepository.class);
+            ExampleMatcher prefix = ExampleMatcher.matching()
+                    .withIgnoreNullValues()
+                    .withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+
+            out.printf("%n%s: ready=%d ms warm=%d ms%n", phase, readyMillis, warmMillis);
+            out.printf("%-14s %9s %9s %9s %9s %9s%n", "operation", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+
+            measure(out, "service.find", id -> bookService.findById(id));
+            measure(out, "repo.findById", id -> bookRepository.findById(id));
+            measure(out, "repo.prefix", id -> {
+                Book probe = new Book();
+                probe.setTitleNormalized("livro " + id);
+                bookRepository.findContent(Example.of(probe, prefix), PageRequest.of(0, PAGE_SIZE));
+            });
+        }
+    }
+
+    private void measure(PrintWriter out, String name, LongConsumer query) {
+
+        Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < queries; i++) {
+
+            long id = random.nextInt(10) < 9
+                    ? 1 + random.nextLong(Math.min(hotBooks, books))
+                    : 1 + random.nextLong(books);
+
+            long start = System.nanoTime();
+            query.accept(id);
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), HIGHEST_TRACKABLE_MICROS));
+        }
+
+        out.printf("%-14s %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                name,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(95) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private ConfigurableApplicationContext start(Path database) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .profiles("file")
+                .properties(
+                        "server.port=0",
+                        "library.h2.path=" + database.toAbsolutePath(),
+                        "library.h2.cache-size-kb=" + cacheSizeKb,
+                        "library.book.search.index.enabled=" + searchIndex,
+                        "library.book.hot-set.size=" + hotBooks
+                )
+                .run();
+    }
+
+    private void waitForWarmUp(ConfigurableApplicationContext context) throws InterruptedException {
+
+        BookHotSet bookHotSet = context.getBean(BookHotSet.class);
+        BookCounter bookCounter = context.getBean(BookCounter.class);
+        BookSearchIndex bookSearchIndex = context.getBean(BookSearchIndex.class);
+        boolean indexEnabled = Boolean.parseBoolean(searchIndex);
+        long deadline = System.currentTimeMillis() + READY_TIMEOUT_MILLIS;
+
+        while (!bookHotSet.isWarm() || !bookCounter.isReady() || (indexEnabled && !bookSearchIndex.isReady())) {
+
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Warm-up did not finish in " + READY_TIMEOUT_MILLIS + " ms");
+            }
+
+            Thread.sleep(10);
+        }
+    }
+
+    private String jdbcUrl(Path database) {
+        return "jdbc:h2:file:" + database.toAbsolutePath() + ";CACHE_SIZE=" + cacheSizeKb + ";COMPRESS=TRUE";
+    }
+
+    private static Path hotSetFile(Path database) {
+        return Paths.get(database.toAbsolutePath() + ".hotset");
+    }
+
+    private static String readSize(Path sizeFile) throws IOException {
+        return Files.exists(sizeFile) ? new String(Files.readAllBytes(sizeFile), StandardCharsets.UTF_8).trim() : null;
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.a2da.libraryapi.load;
+
+/*
+ * Operacoes do BookApiLoadTest, uma (ou mais) por endpoint do BookController.
+ * */
+public enum BookLoadOperation {
+
+    SHOW,           // GET /api/books/{id}
+    FIND,           // GET /api/books?page=&size=&sort=id
+    SEARCH,         // GET /api/books?title=|author=&match=
+    CURSOR,         // GET /api/books?cursor=&sort=title
+    LOOKUP,         // GET /api/books?ids=
+    EXPORT,         // GET /api/books/export
+    CREATE,         // POST /api/books
+    BATCH,          // POST /api/books/batch
+    IMPORT,         // POST /api/books/import (NDJSON)
+    UPDATE,         // PUT /api/books/{id}
+    PATCH,          // GET /api/books/{id} (ETag) + PATCH /api/books/{id}
+    DELETE,         // DELETE /api/books/{id}
+    BULK_DELETE     // DELETE /api/books?ids=
+}
@@ -0,0 +1,15 @@
+package br.com.a2da.libraryapi.load;
+
+public enum BookLoadOutcome {
+
+    OK,
+
+    // 409/412 esperados com escritas concorrentes no mesmo livro
+    CONFLICT,
+
+    // 429/503 do controle de admissao (BookAdmissionFilter)
+    SHED,
+
+    // status inesperado ou falha de I/O
+    ERROR
+}
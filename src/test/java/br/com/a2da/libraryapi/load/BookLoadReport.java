@@ -0,0 +1,156 @@
+package br.com.a2da.libraryapi.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latencias (HdrHistogram, em microssegundos) e contadores por operacao de um cenario.
+ * Recorder aceita gravacoes concorrentes dos workers sem lock.
+ * */
+public class BookLoadReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<BookLoadOperation, Recorder> recorders = new EnumMap<>(BookLoadOperation.class);
+    private final Map<BookLoadOperation, LongAdder> conflicts = new EnumMap<>(BookLoadOperation.class);
+    private final Map<BookLoadOperation, LongAdder> shed = new EnumMap<>(BookLoadOperation.class);
+    private final Map<BookLoadOperation, LongAdder> errors = new EnumMap<>(BookLoadOperation.class);
+    private final Map<BookLoadOperation, Histogram> histograms = new EnumMap<>(BookLoadOperation.class);
+    private long elapsedNanos;
+
+    public BookLoadReport() {
+
+        for (BookLoadOperation operation : BookLoadOperation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            conflicts.put(operation, new LongAdder());
+            shed.put(operation, new LongAdder());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void record(BookLoadOperation operation, long elapsedNanos, BookLoadOutcome outcome) {
+
+        recorders.get(operation).recordValue(
+                Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS)
+        );
+
+        if (outcome == BookLoadOutcome.CONFLICT) {
+            conflicts.get(operation).increment();
+        } else if (outcome == BookLoadOutcome.SHED) {
+            shed.get(operation).increment();
+        } else if (outcome == BookLoadOutcome.ERROR) {
+            errors.get(operation).increment();
+        }
+    }
+
+    // fim do aquecimento: descarta o que foi gravado ate aqui
+    public void reset() {
+
+        for (BookLoadOperation operation : BookLoadOperation.values()) {
+            recorders.get(operation).reset();
+            conflicts.get(operation).reset();
+            shed.get(operation).reset();
+            errors.get(operation).reset();
+        }
+    }
+
+    public void finish(long elapsedNanos) {
+
+        this.elapsedNanos = elapsedNanos;
+
+        for (BookLoadOperation operation : BookLoadOperation.values()) {
+            histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+        }
+    }
+
+    public long getRequests() {
+        return total().getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getShed() {
+        return shed.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public double getErrorRate() {
+
+        long requests = getRequests();
+
+        return requests == 0 ? 0 : (double) getErrors() / requests;
+    }
+
+    public String format(BookLoadWorkload workload, int concurrency, int books) {
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        double seconds = elapsedNanos / 1e9;
+
+        out.printf("workload=%s concurrency=%d books=%d duration=%.1fs%n", workload.getName(), concurrency, books, seconds);
+        out.printf("%-12s %9s %7s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "conflicts", "shed", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (BookLoadOperation operation : BookLoadOperation.values()) {
+
+            Histogram histogram = histograms.get(operation);
+
+            if (histogram.getTotalCount() > 0) {
+                line(out, operation.name(), histogram, errors.get(operation).sum(), conflicts.get(operation).sum(),
+                        shed.get(operation).sum(), seconds);
+            }
+        }
+
+        line(out, "TOTAL", total(), getErrors(), conflicts.values().stream().mapToLong(LongAdder::sum).sum(), getShed(), seconds);
+        out.flush();
+
+        return text.toString();
+    }
+
+    public void write(Path file, String report) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Histogram total() {
+
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        histograms.values().forEach(total::add);
+
+        return total;
+    }
+
+    private static void line(PrintWriter out, String name, Histogram histogram, long errors, long conflicts, long shed,
+                             double seconds) {
+        out.printf("%-12s %9d %7d %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errors,
+                conflicts,
+                shed,
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(95)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
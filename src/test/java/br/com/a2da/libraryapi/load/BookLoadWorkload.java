@@ -0,0 +1,67 @@
+package br.com.a2da.libraryapi.load;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static br.com.a2da.libraryapi.load.BookLoadOperation.*;
+
+/*
+ * Mistura de operacoes de cada cenario, em pesos por mil requests.
+ * EXPORT le o catalogo inteiro, por isso fica com peso minimo.
+ * */
+public enum BookLoadWorkload {
+
+    READ_HEAVY(new int[]{
+            500, 120, 100, 50, 100, 1,      // SHOW, FIND, SEARCH, CURSOR, LOOKUP, EXPORT
+            40, 5, 2,                       // CREATE, BATCH, IMPORT
+            40, 30, 10, 2                   // UPDATE, PATCH, DELETE, BULK_DELETE
+    }),
+
+    WRITE_HEAVY(new int[]{
+            150, 40, 30, 20, 30, 1,
+            300, 30, 9,
+            160, 140, 70, 20
+    }),
+
+    SEARCH_HEAVY(new int[]{
+            100, 200, 450, 120, 50, 1,
+            30, 3, 1,
+            20, 15, 8, 2
+    });
+
+    private final int[] cumulativeWeights;
+
+    BookLoadWorkload(int[] weights) {
+
+        if (weights.length != BookLoadOperation.values().length) {
+            throw new IllegalArgumentException("Um peso por BookLoadOperation");
+        }
+
+        cumulativeWeights = new int[weights.length];
+
+        int total = 0;
+
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public BookLoadOperation next(ThreadLocalRandom random) {
+
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return BookLoadOperation.values()[i];
+            }
+        }
+
+        return SHOW;
+    }
+
+    // read-heavy -> READ_HEAVY
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}